@@ -0,0 +1,139 @@
+package cn.edu.hitsz.compiler;
+
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * 在一个 JVM 中并行编译多个源文件
+ * <br>
+ * 码点, 文法与分析表作为一个 {@link Language} 只加载一次, 由各编译只读共享; 每个文件由线程池中的一个线程完成一次 {@link Compilation},
+ * 结果写入输出目录下以源文件命名的子目录, 其中的文件与 {@link Main} 在 data/out 中的输出相同.
+ * 某个文件编译出错不影响其它文件, 全部完成后报告出错的文件.
+ * <br>
+ * 用法: {@code BatchCompiler [-j 线程数] 输出目录 源文件或目录...}, 目录中的所有文件 (含子目录) 都作为源文件,
+ * 其输出子目录保持相对于该目录的路径. 线程数默认为处理器个数.
+ * 两个源文件的输出子目录相同时 (例如不同目录中的同名文件, 或只有扩展名不同的文件) 不编译任何文件, 直接报错.
+ */
+public class BatchCompiler {
+    /**
+     * 一个待编译的源文件
+     *
+     * @param source 源文件路径
+     * @param output 输出目录
+     */
+    private record Job(Path source, Path output) {
+    }
+
+    public static void main(String[] args) {
+        var threads = Runtime.getRuntime().availableProcessors();
+        var index = 0;
+        if (args.length > 1 && args[0].equals("-j")) {
+            threads = Integer.parseInt(args[1]);
+            index = 2;
+        }
+        if (args.length - index < 2) {
+            throw new RuntimeException("Usage: BatchCompiler [-j threads] <output dir> <source file or dir>...");
+        }
+
+        final var outputRoot = Path.of(args[index]);
+        final var jobs = new ArrayList<Job>();
+        for (int i = index + 1; i < args.length; i++) {
+            collectJobs(Path.of(args[i]), outputRoot, jobs);
+        }
+        checkDistinctOutputs(jobs);
+
+        // 共享的只读状态在开始编译之前全部加载完毕
+        final var language = Language.standard();
+
+        final var begin = System.nanoTime();
+        final var failures = compileAll(jobs, language, threads);
+        System.out.printf("Compiled %d files with %d threads in %.1f ms, %d failed%n",
+            jobs.size(), threads, (System.nanoTime() - begin) / 1e6, failures.size());
+        failures.forEach(System.out::println);
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 在线程池中编译全部源文件并写出结果
+     *
+     * @param jobs     各源文件
+     * @param language 共享的语言
+     * @param threads  线程数
+     * @return 各出错文件的错误信息
+     */
+    private static List<String> compileAll(List<Job> jobs, Language language, int threads) {
+        final var pool = Executors.newFixedThreadPool(threads);
+        try {
+            final var futures = new ArrayList<Future<?>>();
+            for (final var job : jobs) {
+                futures.add(pool.submit(() -> Compilation.compile(FileUtils.readFile(job.source().toString()), language)
+                    .dump(job.output().toString())));
+            }
+
+            final var failures = new ArrayList<String>();
+            for (int i = 0; i < jobs.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    failures.add("%s: %s".formatted(jobs.get(i).source(), e.getCause().getMessage()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while compiling", e);
+                }
+            }
+            return failures;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @throws RuntimeException 两个源文件的输出子目录相同, 它们的结果会互相覆盖
+     */
+    private static void checkDistinctOutputs(List<Job> jobs) {
+        final var sources = new HashMap<Path, Path>();
+        for (final var job : jobs) {
+            final var previous = sources.putIfAbsent(job.output().toAbsolutePath().normalize(), job.source());
+            if (previous != null) {
+                throw new RuntimeException("%s and %s would both be written to %s"
+                    .formatted(previous, job.source(), job.output()));
+            }
+        }
+    }
+
+    private static void collectJobs(Path path, Path outputRoot, List<Job> jobs) {
+        if (!Files.isDirectory(path)) {
+            jobs.add(new Job(path, outputRoot.resolve(withoutExtension(path.getFileName()))));
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(path)) {
+            files.filter(Files::isRegularFile).sorted().forEach(file -> {
+                final var relative = path.relativize(file);
+                final var parent = relative.getParent();
+                final var name = withoutExtension(relative.getFileName());
+                jobs.add(new Job(file, outputRoot.resolve(parent == null ? name : parent.resolve(name).toString())));
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception for " + path, e);
+        }
+    }
+
+    private static String withoutExtension(Path fileName) {
+        final var name = fileName.toString();
+        final var dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -0,0 +1,174 @@
+package cn.edu.hitsz.compiler;
+
+import cn.edu.hitsz.compiler.asm.AssemblyGenerator;
+import cn.edu.hitsz.compiler.ir.IRBuilder;
+import cn.edu.hitsz.compiler.ir.Instruction;
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenStream;
+import cn.edu.hitsz.compiler.parser.SemanticPasses;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.Cancellation;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+import cn.edu.hitsz.compiler.utils.IREmulator;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 一个源文件的一次完整编译, 各阶段的结果都保存在内存中
+ * <br>
+ * 步骤与 {@link Main} 相同. 每次编译有自己的符号表, 驱动程序与观察者, 与其它编译只共享只读的 {@link Language},
+ * 因此多个编译可以在不同线程中同时进行, 见 {@link BatchCompiler}.
+ * 临时变量由本次编译的 {@link IRBuilder} 编号, 结果与同时进行的其它编译无关.
+ */
+public final class Compilation {
+    private final TokenStream tokens;
+    private final List<String> oldSymbolTable;
+    private final List<Production> productions;
+    private final List<String> newSymbolTable;
+    private final List<Instruction> instructions;
+    private final String emulateResult;
+    private final List<String> assembly;
+
+    private Compilation(String source, Language language) {
+        final var grammar = language.getGrammar();
+        final var symbolTable = new SymbolTable();
+
+        // 词法分析, 不输出提示
+        tokens = LexicalAnalyzer.tokenize(source, symbolTable, language.getTokenKinds());
+        oldSymbolTable = symbolTable.formatTable();
+        Cancellation.checkpoint();
+
+        // 语法分析, 语义分析与 IR 生成
+        final var parser = new SyntaxAnalyzer(symbolTable);
+        parser.loadTokens(tokens);
+        parser.loadLRTable(language.getTable());
+        final var passes = new SemanticPasses(grammar);
+        parser.registerObserver(passes);
+        parser.run();
+        if (!passes.isAccepted()) {
+            throw new RuntimeException("Syntax error, the source is not accepted");
+        }
+        productions = passes.getProductionCollector().getProductions();
+        newSymbolTable = symbolTable.formatTable();
+        instructions = passes.getIR();
+        Cancellation.checkpoint();
+
+        // 模拟执行 IR
+        emulateResult = IREmulator.load(instructions).execute().map(Objects::toString).orElse("No return value");
+        Cancellation.checkpoint();
+
+        // 由 IR 生成汇编
+        final var asmGenerator = new AssemblyGenerator();
+        asmGenerator.loadIR(instructions, passes.getIRBuilder());
+        asmGenerator.run();
+        assembly = asmGenerator.getAssembly();
+    }
+
+    /**
+     * 编译一段源代码
+     *
+     * @param source   源代码
+     * @param language 源代码所用的语言, 可在多个编译之间共享
+     * @return 编译结果
+     * @throws RuntimeException 编译出错, 包括源代码不能被接受, 或所在线程被中断
+     */
+    public static Compilation compile(String source, Language language) {
+        return new Compilation(source, language);
+    }
+
+    /**
+     * 将各阶段的结果写入目录, 文件名与 {@link FilePathConfig} 中的各输出文件相同
+     *
+     * @param directory 输出目录, 不存在时创建
+     */
+    public void dump(String directory) {
+        FileUtils.createDirectories(directory);
+        outputs().forEach((name, lines) -> FileUtils.writeLines(Path.of(directory).resolve(name).toString(), lines));
+    }
+
+    /**
+     * @return 各阶段的结果, 键为 {@link FilePathConfig} 中各输出文件的文件名, 按 {@link Main} 写出的顺序排列, 值为文件的各行
+     */
+    public Map<String, List<String>> outputs() {
+        final var outputs = new LinkedHashMap<String, List<String>>();
+        outputs.put(fileName(FilePathConfig.TOKEN_PATH), tokenLines());
+        outputs.put(fileName(FilePathConfig.OLD_SYMBOL_TABLE), oldSymbolTable);
+        outputs.put(fileName(FilePathConfig.PARSER_PATH), productions.stream().map(Production::toString).toList());
+        outputs.put(fileName(FilePathConfig.NEW_SYMBOL_TABLE), newSymbolTable);
+        outputs.put(fileName(FilePathConfig.INTERMEDIATE_CODE_PATH),
+            instructions.stream().map(Instruction::toString).toList());
+        outputs.put(fileName(FilePathConfig.EMULATE_RESULT), List.of(emulateResult));
+        outputs.put(fileName(FilePathConfig.ASSEMBLY_LANGUAGE_PATH), assembly);
+        return outputs;
+    }
+
+    private static String fileName(String path) {
+        return Path.of(path).getFileName().toString();
+    }
+
+    private List<String> tokenLines() {
+        final var lines = new ArrayList<String>(tokens.size());
+        for (final var token : tokens) {
+            lines.add(token.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * @return 词法单元流, 末尾为 EOF
+     */
+    public Iterable<Token> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @return 语义分析前的符号表, 格式同 {@link SymbolTable#formatTable()}
+     */
+    public List<String> getOldSymbolTable() {
+        return oldSymbolTable;
+    }
+
+    /**
+     * @return 按规约顺序排列的产生式
+     */
+    public List<Production> getProductions() {
+        return productions;
+    }
+
+    /**
+     * @return 语义分析后的符号表, 格式同 {@link SymbolTable#formatTable()}
+     */
+    public List<String> getNewSymbolTable() {
+        return newSymbolTable;
+    }
+
+    /**
+     * @return 中间代码
+     */
+    public List<Instruction> getIR() {
+        return instructions;
+    }
+
+    /**
+     * @return IR 模拟执行的结果
+     */
+    public String getEmulateResult() {
+        return emulateResult;
+    }
+
+    /**
+     * @return 汇编代码
+     */
+    public List<String> getAssembly() {
+        return assembly;
+    }
+}
@@ -0,0 +1,326 @@
+package cn.edu.hitsz.compiler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 常驻的编译服务, 在一个 JVM 中接连处理多个编译请求
+ * <br>
+ * 码点, 文法与分析表在启动时作为一个 {@link Language} 加载一次, 之后的请求不再读取任何输入文件,
+ * 且各阶段的代码在处理过若干请求后已被 JIT 编译, 单个请求的耗时只剩编译本身.
+ * 每个请求是一次 {@link Compilation}, 结果不写入 data/out, 而是按下面的协议返回.
+ * <br>
+ * 用法: {@code CompileServer [--socket 路径] [--max-concurrent 编译数]}. 默认读写标准输入输出, 标准输入关闭时退出;
+ * 指定路径时在该 Unix 域套接字上监听, 每个连接是一个独立的会话, 各会话可同时进行.
+ * 两种方式下各阶段原本打印到标准输出的提示都被转到标准错误, 以免与响应混在一起.
+ * <br>
+ * 每个编译在会话之外的线程中进行, 同时进行的编译数不超过 --max-concurrent (默认为处理器个数), 其余的排队等待.
+ * 运行时提供虚拟线程 (Java 21 起) 时, 每个会话与每个编译都在自己的虚拟线程中, 上千个连接不需要上千个平台线程;
+ * 否则会话各占一个平台线程, 编译在固定大小的线程池中进行.
+ * 请求可以给出超时, 超时 (包括排队的时间) 或会话结束时未完成的编译被取消: 排队中的编译不再开始,
+ * 进行中的编译所在线程被中断, 各阶段每隔若干个词法单元, 分析动作或指令检查一次 ({@link cn.edu.hitsz.compiler.utils.Cancellation}),
+ * 因此编译很快结束并归还名额, 而不必等到当前阶段完成.
+ * <br>
+ * 协议以行为单位, UTF-8 编码, 请求与响应中的文本都先给出行数, 因此无需转义:
+ * <pre>
+ * 请求:  COMPILE &lt;行数&gt; [超时]  之后是源代码的各行, 超时以毫秒为单位, 缺省时不限; 源代码至多 {@value #MAX_SOURCE_LENGTH} 个字符
+ *        QUIT                   结束会话
+ * 响应:  OK &lt;文件数&gt;            之后是各输出文件, 顺序与 {@link Compilation#outputs()} 相同, 每个文件为:
+ *        &lt;文件名&gt; &lt;行数&gt;        之后是文件的各行
+ *        ERROR &lt;错误信息&gt;        编译出错, 被取消或请求不合法, 错误信息只有一行
+ * </pre>
+ */
+public class CompileServer implements AutoCloseable {
+    /**
+     * 一个请求中源代码的最大字符数 (含行间的换行符), 超过时读入并丢弃该请求, 返回 ERROR
+     */
+    public static final int MAX_SOURCE_LENGTH = 16 * 1024 * 1024;
+    // 请求首行的最大字符数, 超出的部分被丢弃
+    private static final int MAX_HEADER_LENGTH = 256;
+
+    private final Language language;
+    // 运行时提供虚拟线程时为每个任务一个虚拟线程的执行器, 否则为 null
+    private final ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+    private final ExecutorService compilations;
+    // 编译的名额, 编译开始前取得, 结束后归还
+    private final Semaphore slots;
+
+    /**
+     * @param language 各请求所用的语言
+     */
+    public CompileServer(Language language) {
+        this(language, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param language      各请求所用的语言
+     * @param maxConcurrent 同时进行的编译数的上限
+     */
+    public CompileServer(Language language, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new RuntimeException("Illegal max concurrent compilations: " + maxConcurrent);
+        }
+        this.language = language;
+        this.slots = new Semaphore(maxConcurrent);
+        this.compilations = virtualThreads != null ? virtualThreads : Executors.newFixedThreadPool(maxConcurrent);
+    }
+
+    public static void main(String[] args) throws IOException {
+        // 响应写入原来的标准输出, 其余的输出都转到标准错误
+        final var stdout = System.out;
+        System.setOut(System.err);
+
+        Path socket = null;
+        var maxConcurrent = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new RuntimeException("Usage: CompileServer [--socket path] [--max-concurrent n]");
+            }
+            switch (args[i]) {
+                case "--socket" -> socket = Path.of(args[i + 1]);
+                case "--max-concurrent" -> maxConcurrent = Integer.parseInt(args[i + 1]);
+                default -> throw new RuntimeException("Usage: CompileServer [--socket path] [--max-concurrent n]");
+            }
+        }
+
+        try (final var server = new CompileServer(Language.standard(), maxConcurrent)) {
+            if (socket != null) {
+                server.listen(socket);
+            } else {
+                server.serve(
+                    new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)),
+                    new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8)));
+            }
+        }
+    }
+
+    /**
+     * 通过反射取得 {@code Executors.newVirtualThreadPerTaskExecutor()}, 以便在 Java 17 上编译, 在 Java 21 起的运行时上使用虚拟线程
+     *
+     * @return 每个任务一个虚拟线程的执行器, 运行时不提供虚拟线程时为 null
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 取消未完成的编译并停止执行器
+     */
+    @Override
+    public void close() {
+        compilations.shutdownNow();
+    }
+
+    /**
+     * 在 Unix 域套接字上监听, 为每个连接开始一个会话, 不会返回
+     *
+     * @param path 套接字路径, 已存在的文件会被删除
+     */
+    public void listen(Path path) throws IOException {
+        Files.deleteIfExists(path);
+        // 会话大部分时间阻塞在读写上, 有虚拟线程时每个会话一个虚拟线程, 否则一个平台线程
+        final var sessions = virtualThreads != null ? virtualThreads : Executors.newCachedThreadPool();
+        try (final var channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.bind(UnixDomainSocketAddress.of(path));
+            System.err.println("Listening on " + path);
+            while (true) {
+                final var connection = channel.accept();
+                sessions.submit(() -> serve(connection));
+            }
+        } finally {
+            if (sessions != virtualThreads) {
+                sessions.shutdownNow();
+            }
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        try (connection) {
+            serve(new BufferedReader(Channels.newReader(connection, StandardCharsets.UTF_8)),
+                new BufferedWriter(Channels.newWriter(connection, StandardCharsets.UTF_8)));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Session closed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 处理一个会话中的全部请求, 直到读到 QUIT 或输入结束
+     * <br>
+     * 会话所在的线程被中断时, 正在进行的编译被取消, 会话结束.
+     *
+     * @param in  请求
+     * @param out 响应, 每个响应写完后刷新
+     */
+    public void serve(BufferedReader in, BufferedWriter out) throws IOException {
+        final var header = new StringBuilder();
+        while (readLine(in, header, MAX_HEADER_LENGTH) >= 0 && !header.toString().equals("QUIT")) {
+            final var line = header.toString();
+            header.setLength(0);
+            final var request = line.split(" ");
+            final var valid = (request.length == 2 || request.length == 3) && request[0].equals("COMPILE");
+            final var count = valid ? parseNonNegative(request[1]) : -1;
+            final var timeout = valid && request.length == 3 ? parseNonNegative(request[2]) : 0;
+            if (count < 0 || timeout < 0) {
+                writeError(out, "Unknown request: " + line);
+            } else {
+                final var source = new StringBuilder();
+                final var length = readSource(in, count, source);
+                if (length < 0) {
+                    writeError(out, "Unexpected end of request");
+                    out.flush();
+                    return;
+                }
+                if (length > MAX_SOURCE_LENGTH) {
+                    writeError(out, "Source of %d characters exceeds the limit of %d".formatted(length, MAX_SOURCE_LENGTH));
+                } else {
+                    respond(source.toString(), timeout, out);
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * 在编译线程中编译源代码并写出响应, 等待结果时会话线程不占用编译的名额
+     *
+     * @param timeout 超时的毫秒数, 为 0 时不限
+     */
+    private void respond(String source, int timeout, BufferedWriter out) throws IOException {
+        final var begin = System.nanoTime();
+        final Future<Compilation> future = compilations.submit(() -> compile(source));
+        final Compilation compilation;
+        try {
+            compilation = timeout > 0 ? future.get(timeout, TimeUnit.MILLISECONDS) : future.get();
+        } catch (ExecutionException e) {
+            writeError(out, String.valueOf(e.getCause().getMessage()));
+            return;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            writeError(out, "Compilation cancelled after %.1f ms".formatted((System.nanoTime() - begin) / 1e6));
+            return;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Session interrupted", e);
+        }
+
+        final var outputs = compilation.outputs();
+        writeLine(out, "OK " + outputs.size());
+        for (final var output : outputs.entrySet()) {
+            writeLine(out, output.getKey() + " " + output.getValue().size());
+            for (final var outputLine : output.getValue()) {
+                writeLine(out, outputLine);
+            }
+        }
+    }
+
+    /**
+     * 取得名额后编译, 排队或编译时被中断即被取消
+     */
+    private Compilation compile(String source) throws InterruptedException {
+        slots.acquire();
+        try {
+            return Compilation.compile(source, language);
+        } finally {
+            slots.release();
+        }
+    }
+
+    /**
+     * @return 非负整数, 不是非负整数时为 -1
+     */
+    private static int parseNonNegative(String text) {
+        try {
+            final var value = Integer.parseInt(text);
+            return value >= 0 ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 读入源代码的各行, 与 FileUtils.readFile 相同, 以 \n 连接各行.
+     * 行数来自客户端, 故不据此预先分配空间; 源代码超过 {@link #MAX_SOURCE_LENGTH} 个字符时其余的部分被读入并丢弃
+     *
+     * @param count  行数
+     * @param source 读入的源代码, 至多 {@link #MAX_SOURCE_LENGTH} 个字符
+     * @return 源代码的字符数, 可能超过 {@link #MAX_SOURCE_LENGTH}; 输入在读完之前结束时为 -1
+     */
+    private static long readSource(BufferedReader in, int count, StringBuilder source) throws IOException {
+        var length = 0L;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                length++;
+                if (source.length() < MAX_SOURCE_LENGTH) {
+                    source.append('\n');
+                }
+            }
+            final var lineLength = readLine(in, source, MAX_SOURCE_LENGTH);
+            if (lineLength < 0) {
+                return -1;
+            }
+            length += lineLength;
+        }
+        return length;
+    }
+
+    /**
+     * 读入一行追加到 builder, 行尾与 {@link BufferedReader#readLine()} 相同, 为 \n, \r 或 \r\n, 不计入该行.
+     * builder 的长度达到 limit 后, 该行其余的字符被读入并丢弃
+     *
+     * @return 该行的字符数, 输入已结束时为 -1
+     */
+    private static long readLine(BufferedReader in, StringBuilder builder, int limit) throws IOException {
+        var c = in.read();
+        if (c < 0) {
+            return -1;
+        }
+        var length = 0L;
+        while (c >= 0 && c != '\n' && c != '\r') {
+            if (builder.length() < limit) {
+                builder.append((char) c);
+            }
+            length++;
+            c = in.read();
+        }
+        if (c == '\r') {
+            in.mark(1);
+            if (in.read() != '\n') {
+                in.reset();
+            }
+        }
+        return length;
+    }
+
+    private static void writeError(BufferedWriter out, String message) throws IOException {
+        writeLine(out, "ERROR " + message.replace('\n', ' '));
+    }
+
+    private static void writeLine(BufferedWriter out, String line) throws IOException {
+        out.write(line);
+        out.newLine();
+    }
+}
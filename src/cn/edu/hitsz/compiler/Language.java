@@ -0,0 +1,116 @@
+package cn.edu.hitsz.compiler;
+
+import cn.edu.hitsz.compiler.lexer.TokenKinds;
+import cn.edu.hitsz.compiler.parser.table.Grammar;
+import cn.edu.hitsz.compiler.parser.table.LALRTableGenerator;
+import cn.edu.hitsz.compiler.parser.table.LRTable;
+import cn.edu.hitsz.compiler.parser.table.TableCache;
+import cn.edu.hitsz.compiler.parser.table.TableGenerator;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+/**
+ * 一门语言: 码点文件中的词法单元类型, 语法文件中的文法, 以及该文法的 LR 分析表
+ * <br>
+ * 三者在创建时一并读取或构造, 之后不再改变, 也不依赖 {@link cn.edu.hitsz.compiler.lexer.TokenKind} 与
+ * {@link cn.edu.hitsz.compiler.parser.table.GrammarInfo} 中的默认码点文件与语法文件.
+ * 因此同一进程中可以同时加载多门语言 (或同一语言的多个文法版本), 并在不同线程中用它们编译, 见 {@link Compilation#compile(String, Language)}.
+ */
+public final class Language {
+    private final TokenKinds tokenKinds;
+    private final Grammar grammar;
+    private final LRTable table;
+
+    private Language(Grammar grammar, LRTable table) {
+        this.tokenKinds = grammar.getTokenKinds();
+        this.grammar = grammar;
+        this.table = table;
+        // 预先编译分析表, 之后各线程只读
+        table.compile();
+    }
+
+    /**
+     * @param grammar 文法, 其终结符所属的码点文件也属于这门语言
+     * @param table   该文法的 LR 分析表
+     * @return 由它们组成的语言
+     */
+    public static Language of(Grammar grammar, LRTable table) {
+        return new Language(grammar, table);
+    }
+
+    /**
+     * 读取码点文件, 语法文件与 CSV 格式的分析表
+     *
+     * @param codingMapPath 码点文件路径
+     * @param grammarPath   语法文件路径
+     * @param tablePath     CSV 分析表路径
+     * @return 语言
+     */
+    public static Language load(String codingMapPath, String grammarPath, String tablePath) {
+        final var grammar = Grammar.load(grammarPath, TokenKinds.load(codingMapPath));
+        return new Language(grammar, new TableLoader(grammar).load(tablePath));
+    }
+
+    /**
+     * 读取码点文件与语法文件, 并由 {@link TableGenerator} 构造 SLR(1) 分析表
+     *
+     * @param codingMapPath 码点文件路径
+     * @param grammarPath   语法文件路径
+     * @return 语言
+     */
+    public static Language generate(String codingMapPath, String grammarPath) {
+        final var grammar = Grammar.load(grammarPath, TokenKinds.load(codingMapPath));
+        final var generator = new TableGenerator(grammar);
+        generator.build();
+        return new Language(grammar, generator.getTable());
+    }
+
+    /**
+     * 读取码点文件与语法文件, 并由 {@link LALRTableGenerator} 构造 LALR(1) 分析表
+     *
+     * @param codingMapPath 码点文件路径
+     * @param grammarPath   语法文件路径
+     * @return 语言
+     */
+    public static Language generateLALR(String codingMapPath, String grammarPath) {
+        final var grammar = Grammar.load(grammarPath, TokenKinds.load(codingMapPath));
+        final var generator = new LALRTableGenerator(grammar);
+        generator.run();
+        return new Language(grammar, generator.getTable());
+    }
+
+    /**
+     * 同 {@link #load(String, String, String)}, 但分析表经由 {@link TableCache} 读取
+     *
+     * @param cacheDirectory 缓存目录
+     * @param codingMapPath  码点文件路径
+     * @param grammarPath    语法文件路径
+     * @param tablePath      CSV 分析表路径
+     * @return 语言
+     */
+    public static Language cached(String cacheDirectory, String codingMapPath, String grammarPath, String tablePath) {
+        final var grammar = Grammar.load(grammarPath, TokenKinds.load(codingMapPath));
+        final var cache = new TableCache(cacheDirectory, grammar, grammarPath, codingMapPath);
+        return new Language(grammar, cache.load(tablePath));
+    }
+
+    /**
+     * @return 由 {@link FilePathConfig} 中的码点文件, 语法文件与 CSV 分析表组成的语言, 分析表经由默认的缓存目录读取
+     */
+    public static Language standard() {
+        return cached(FilePathConfig.TABLE_CACHE_DIR, FilePathConfig.CODING_MAP_PATH,
+            FilePathConfig.GRAMMAR_PATH, FilePathConfig.LR1_TABLE_PATH);
+    }
+
+    public TokenKinds getTokenKinds() {
+        return tokenKinds;
+    }
+
+    public Grammar getGrammar() {
+        return grammar;
+    }
+
+    public LRTable getTable() {
+        return table;
+    }
+}
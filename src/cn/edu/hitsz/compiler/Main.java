@@ -3,17 +3,17 @@ package cn.edu.hitsz.compiler;
 import cn.edu.hitsz.compiler.asm.AssemblyGenerator;
 import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
 import cn.edu.hitsz.compiler.lexer.TokenKind;
-import cn.edu.hitsz.compiler.parser.IRGenerator;
 import cn.edu.hitsz.compiler.parser.ProductionCollector;
-import cn.edu.hitsz.compiler.parser.SemanticAnalyzer;
+import cn.edu.hitsz.compiler.parser.SemanticPasses;
 import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
 import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
-import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.parser.table.TableCache;
 import cn.edu.hitsz.compiler.symtab.SymbolTable;
 import cn.edu.hitsz.compiler.utils.FilePathConfig;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 import cn.edu.hitsz.compiler.utils.IREmulator;
 
+import java.util.EnumSet;
 import java.util.Objects;
 
 public class Main {
@@ -24,20 +24,20 @@ public class Main {
 
         // 词法分析
         final var lexer = new LexicalAnalyzer(symbolTable);
-        lexer.loadFile(FilePathConfig.SRC_CODE_PATH);
-        lexer.run();
+        lexer.loadMappedFile(FilePathConfig.SRC_CODE_PATH);
+        lexer.runPacked();
         lexer.dumpTokens(FilePathConfig.TOKEN_PATH);
         final var tokens = lexer.getTokens();
         symbolTable.dumpTable(FilePathConfig.OLD_SYMBOL_TABLE);
 
-        // 读取第三方程序构造的 LR 分析表
-        final var tableLoader = new TableLoader();
-        final var lrTable = tableLoader.load(FilePathConfig.LR1_TABLE_PATH);
+        // 读取第三方程序构造的 LR 分析表, 语法文件, 码点文件与分析表都未改动时直接使用缓存的二进制表
+        final var tableCache = new TableCache(FilePathConfig.TABLE_CACHE_DIR);
+        final var lrTable = tableCache.load(FilePathConfig.LR1_TABLE_PATH);
 
-        // // 或使用框架自带部分直接从 grammar.txt 构造 LR 分析表
-        // final var tableGenerator = new TableGenerator();
-        // tableGenerator.run();
-        // final var lrTable = tableGenerator.getTable();
+        // // 或使用框架自带部分直接从 grammar.txt 构造 LR 分析表, 同样会被缓存
+        // final var lrTable = tableCache.generate();
+        // // 或构造 LALR(1) 分析表, 状态数与 SLR(1) 相同, 但冲突更少
+        // final var lrTable = tableCache.generateLALR();
         // lrTable.dumpTable("data/out/lrTable.csv");
 
         // 加载 LR 分析驱动程序
@@ -45,26 +45,26 @@ public class Main {
         parser.loadTokens(tokens);
         parser.loadLRTable(lrTable);
 
-        // 加入生成规约列表的 Observer
-        final var productionCollector = new ProductionCollector(GrammarInfo.getBeginProduction());
-        parser.registerObserver(productionCollector);
-
-        // 加入用作语义检查的 Observer
-        final var semanticAnalyzer = new SemanticAnalyzer();
-        parser.registerObserver(semanticAnalyzer);
-
-        // 加入用作 IR 生成的 Observer
-        final var irGenerator = new IRGenerator();
-        parser.registerObserver(irGenerator);
+        // 加入生成规约列表, 用作语义检查与用作 IR 生成的 Observer
+        // 三者合并为一个观察者, 每次规约只调用一次; 也可以像原先一样分别注册
+        // ProductionCollector, SemanticAnalyzer 与 IRGenerator
+        // 规约列表在分析过程中直接写入文件, 不在内存中保存
+        final var productionCollector = ProductionCollector.streaming(
+            GrammarInfo.getBeginProduction(), FilePathConfig.PARSER_PATH);
+        final var passes = new SemanticPasses(EnumSet.allOf(SemanticPasses.Pass.class), productionCollector);
+        parser.registerObserver(passes);
 
         // 执行语法解析并在解析过程中依次调用各 Observer
-        parser.run();
+        try {
+            parser.run();
+        } finally {
+            productionCollector.close();
+        }
 
         // 各 Observer 输出结果
-        productionCollector.dumpToFile(FilePathConfig.PARSER_PATH);
         symbolTable.dumpTable(FilePathConfig.NEW_SYMBOL_TABLE);
-        final var instructions = irGenerator.getIR();
-        irGenerator.dumpIR(FilePathConfig.INTERMEDIATE_CODE_PATH);
+        final var instructions = passes.getIR();
+        passes.dumpIR(FilePathConfig.INTERMEDIATE_CODE_PATH);
 
         // 模拟执行 IR 并输出结果
         final var emulator = IREmulator.load(instructions);
@@ -72,8 +72,9 @@ public class Main {
 
         // 由 IR 生成汇编
         final var asmGenerator = new AssemblyGenerator();
-        asmGenerator.loadIR(instructions);
+        asmGenerator.loadIR(instructions, passes.getIRBuilder());
         asmGenerator.run();
+        System.out.println("Assembly Generate over");
         asmGenerator.dump(FilePathConfig.ASSEMBLY_LANGUAGE_PATH);
     }
 }
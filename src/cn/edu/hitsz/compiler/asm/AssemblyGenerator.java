@@ -1,6 +1,7 @@
 package cn.edu.hitsz.compiler.asm;
 
 import cn.edu.hitsz.compiler.ir.*;
+import cn.edu.hitsz.compiler.utils.Cancellation;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 
 import java.util.*;
@@ -53,6 +54,7 @@ public class AssemblyGenerator {
         // 若均不空闲，寻找后续不再使用的变量占用的寄存器
         Set<Register> cleanableRegs = Arrays.stream(Register.values()).collect(Collectors.toSet());
         for(int i = instIndex; i<instList.size(); i++){
+            Cancellation.checkpoint(i);
             // 排除后续每一条指令所有出现的变量所占用的寄存器（若存在），剩余即为可被清理的寄存器
             Instruction inst = instList.get(i);
             for(IRValue irValue : inst.getOperands()){
@@ -75,6 +77,16 @@ public class AssemblyGenerator {
      * @param originInstructions 前端提供的中间代码
      */
     public void loadIR(List<Instruction> originInstructions) {
+        loadIR(originInstructions, IRBuilder.continuing(originInstructions));
+    }
+
+    /**
+     * 加载前端提供的中间代码, 预处理时新增的临时变量从生成这些中间代码的命名上下文中分配
+     *
+     * @param originInstructions 前端提供的中间代码
+     * @param irBuilder          生成这些中间代码时使用的命名上下文
+     */
+    public void loadIR(List<Instruction> originInstructions, IRBuilder irBuilder) {
         for (Instruction inst : originInstructions) {
             switch (inst.getKind()) {
                 // 两个操作数的指令
@@ -102,12 +114,12 @@ public class AssemblyGenerator {
                             case ADD -> instList.add(Instruction.createAdd(inst.getResult(),inst.getRHS(),inst.getLHS()));
                             // 减法与乘法指令前添加 MOV tmp imm
                             case SUB -> {
-                                IRVariable tmp = IRVariable.temp();
+                                IRVariable tmp = irBuilder.temp();
                                 instList.add(Instruction.createMov(tmp,inst.getLHS()));
                                 instList.add(Instruction.createSub(inst.getResult(),tmp,inst.getRHS()));
                             }
                             case MUL -> {
-                                IRVariable tmp = IRVariable.temp();
+                                IRVariable tmp = irBuilder.temp();
                                 instList.add(Instruction.createMov(tmp,inst.getLHS()));
                                 instList.add(Instruction.createMul(inst.getResult(),tmp,inst.getLHS()));
                             }
@@ -117,7 +129,7 @@ public class AssemblyGenerator {
                         // 右立即数修改指令
                         // 乘法指令前添加 MOV tmp IMM
                         if (inst.getKind() == InstructionKind.MUL) {
-                            IRVariable tmp = IRVariable.temp();
+                            IRVariable tmp = irBuilder.temp();
                             instList.add(Instruction.createMov(tmp,inst.getLHS()));
                             instList.add(Instruction.createMul(inst.getResult(),tmp,inst.getLHS()));
                         } else {
@@ -151,6 +163,7 @@ public class AssemblyGenerator {
     public void run() {
         // 执行寄存器分配与代码生成
         for(int i=0;i<instList.size();i++) {
+            Cancellation.checkpoint(i);
             Instruction inst = instList.get(i);
             String str = null;
             switch (inst.getKind()) {
@@ -226,10 +239,16 @@ public class AssemblyGenerator {
                 break;
             }
         }
-        System.out.println("Assembly Generate over");
     }
 
 
+    /**
+     * @return 生成的汇编代码, 每行一条
+     */
+    public List<String> getAssembly() {
+        return Collections.unmodifiableList(sentences);
+    }
+
     /**
      * 输出汇编代码到文件
      *
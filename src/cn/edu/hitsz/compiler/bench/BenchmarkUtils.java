@@ -0,0 +1,86 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * 各基准测试共用的小工具
+ * <br>
+ * 项目没有引入 JMH 之类的依赖, 这里只做最朴素的 "预热若干轮, 再取多轮平均" 的计时, 结果仅用于同一台机器上的相对比较.
+ */
+final class BenchmarkUtils {
+    /**
+     * 执行一次计时
+     *
+     * @param warmups 预热轮数
+     * @param rounds  计时轮数
+     * @param round   执行一轮并返回该轮中需要计入的耗时 (纳秒), 以便把准备工作排除在外
+     * @return 平均每轮耗时 (纳秒)
+     */
+    static double measure(int warmups, int rounds, LongSupplier round) {
+        for (int i = 0; i < warmups; i++) {
+            round.getAsLong();
+        }
+
+        long total = 0;
+        for (int i = 0; i < rounds; i++) {
+            total += round.getAsLong();
+        }
+        return (double) total / rounds;
+    }
+
+    /**
+     * 将样例源代码重复多次, 写入临时文件, 用作较大的输入
+     *
+     * @param copies 重复次数
+     * @return 临时文件路径
+     */
+    static String makeLargeSource(int copies) {
+        final var sample = FileUtils.readFile(FilePathConfig.SRC_CODE_PATH) + "\n";
+        try {
+            final var file = Files.createTempFile("bench-source", ".txt");
+            file.toFile().deleteOnExit();
+            FileUtils.writeFile(file.toString(), sample.repeat(copies));
+            return file.toString();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on temp file", e);
+        }
+    }
+
+    /**
+     * 与 {@link #makeLargeSource(int)} 相同, 但第 k 份样例中的标识符都加上由 k 得到的字母后缀 (标识符中只能有字母),
+     * 使各份的声明互不冲突, 可以通过语义分析
+     *
+     * @param copies 重复次数
+     * @return 临时文件路径
+     */
+    static String makeLargeProgram(int copies) {
+        final var sample = FileUtils.readFile(FilePathConfig.SRC_CODE_PATH) + "\n";
+        final var identifier = Pattern.compile("\\b(?!int\\b|return\\b)([A-Za-z]+)");
+        final var builder = new StringBuilder();
+        for (int k = 0; k < copies; k++) {
+            // 双射的 26 进制, 保证各份的后缀互不相同
+            final var suffix = new StringBuilder();
+            for (int n = k + 1; n > 0; n = (n - 1) / 26) {
+                suffix.append((char) ('a' + (n - 1) % 26));
+            }
+            builder.append(identifier.matcher(sample).replaceAll("$1" + suffix));
+        }
+        try {
+            final var file = Files.createTempFile("bench-program", ".txt");
+            file.toFile().deleteOnExit();
+            FileUtils.writeFile(file.toString(), builder.toString());
+            return file.toString();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on temp file", e);
+        }
+    }
+
+    private BenchmarkUtils() {
+    }
+}
@@ -0,0 +1,39 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+
+import java.io.File;
+import java.util.function.Consumer;
+
+/**
+ * 比较 switch 自动机 ({@link LexicalAnalyzer#run()}) 与转移表驱动的 DFA ({@link LexicalAnalyzer#runTableDriven()}) 的吞吐量
+ * <br>
+ * 用法: {@code LexerBenchmark [重复次数]}, 输入为重复若干次的 data/in/input_code.txt
+ */
+public class LexerBenchmark {
+    public static void main(String[] args) {
+        final var copies = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        TokenKind.loadTokenKinds();
+
+        final var path = BenchmarkUtils.makeLargeSource(copies);
+        final var megabytes = new File(path).length() / (1024.0 * 1024.0);
+        System.out.printf("input: %.2f MB%n", megabytes);
+
+        report("switch automaton", path, megabytes, LexicalAnalyzer::run);
+        report("table-driven DFA", path, megabytes, LexicalAnalyzer::runTableDriven);
+    }
+
+    private static void report(String name, String path, double megabytes, Consumer<LexicalAnalyzer> engine) {
+        final var nanos = BenchmarkUtils.measure(3, 5, () -> {
+            final var lexer = new LexicalAnalyzer(new SymbolTable());
+            lexer.loadFile(path);
+
+            final var begin = System.nanoTime();
+            engine.accept(lexer);
+            return System.nanoTime() - begin;
+        });
+        System.out.printf("%-20s %8.2f ms %8.2f MB/s%n", name, nanos / 1e6, megabytes / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,70 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.ActionObserver;
+import cn.edu.hitsz.compiler.parser.IRGenerator;
+import cn.edu.hitsz.compiler.parser.ProductionCollector;
+import cn.edu.hitsz.compiler.parser.SemanticAnalyzer;
+import cn.edu.hitsz.compiler.parser.SemanticPasses;
+import cn.edu.hitsz.compiler.parser.SyntaxAnalyzer;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.LRTable;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 测量 LR 驱动程序 ({@link SyntaxAnalyzer#run()}) 的吞吐量, 以每秒分析的词法单元数表示
+ * <br>
+ * 分别在不注册观察者, 只注册 {@link ProductionCollector}, 分别注册三个观察者, 以及只注册合并后的 {@link SemanticPasses}
+ * 四种情况下计时, 第一种只反映驱动程序本身 (查表与栈操作) 的开销.
+ * 语义分析会修改符号表, 所以每一轮都重新做词法分析, 这部分不计时.
+ * <br>
+ * 用法: {@code ParserBenchmark [重复次数]}, 输入为重复若干次且标识符互不冲突的 data/in/input_code.txt
+ */
+public class ParserBenchmark {
+    public static void main(String[] args) {
+        final var copies = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        TokenKind.loadTokenKinds();
+
+        final var path = BenchmarkUtils.makeLargeProgram(copies);
+        final var table = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+        report("driver only", table, path, List::of);
+        report("with collector", table, path,
+            () -> List.of(new ProductionCollector(GrammarInfo.getBeginProduction())));
+        report("with all observers", table, path,
+            () -> List.of(new ProductionCollector(GrammarInfo.getBeginProduction()),
+                new SemanticAnalyzer(), new IRGenerator()));
+        report("fused passes", table, path, () -> List.of(new SemanticPasses()));
+    }
+
+    private static void report(String name, LRTable table, String path, Supplier<List<ActionObserver>> observers) {
+        final var count = new int[1];
+        final var nanos = BenchmarkUtils.measure(3, 5, () -> {
+            final var symbolTable = new SymbolTable();
+            final var lexer = new LexicalAnalyzer(symbolTable);
+            lexer.loadFile(path);
+            lexer.run();
+            final var tokens = new ArrayList<Token>();
+            lexer.getTokens().forEach(tokens::add);
+            count[0] = tokens.size();
+
+            final var parser = new SyntaxAnalyzer(symbolTable);
+            observers.get().forEach(parser::registerObserver);
+            parser.loadTokens(tokens);
+            parser.loadLRTable(table);
+
+            final var begin = System.nanoTime();
+            parser.run();
+            return System.nanoTime() - begin;
+        });
+        System.out.printf("%-20s %8.2f ms %8.2f M tokens/s  (%d tokens)%n",
+            name, nanos / 1e6, count[0] / (nanos / 1e3), count[0]);
+    }
+}
@@ -0,0 +1,122 @@
+package cn.edu.hitsz.compiler.bench;
+
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.parser.table.CompiledLRTable;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.parser.table.TableLoader;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 比较 {@link Status#getAction(TokenKind)} 的哈希表查找与 {@link CompiledLRTable} 的稠密表及压缩表上的数组查找
+ * <br>
+ * 先用编译后的表分析一遍较大的输入, 记录下驱动程序依次进行的每一次 ACTION 查找 (状态, 终结符),
+ * 再分别用各种表重放这些查找, 得到平均每次查找的耗时.
+ * <br>
+ * 用法: {@code ParserTableBenchmark [重复次数]}, 输入为重复若干次的 data/in/input_code.txt
+ */
+public class ParserTableBenchmark {
+    public static void main(String[] args) {
+        final var copies = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        TokenKind.loadTokenKinds();
+
+        final var lexer = new LexicalAnalyzer(new SymbolTable());
+        lexer.loadFile(BenchmarkUtils.makeLargeSource(copies));
+        lexer.run();
+        final var tokens = new ArrayList<Token>();
+        lexer.getTokens().forEach(tokens::add);
+
+        final var lrTable = new TableLoader().load(FilePathConfig.LR1_TABLE_PATH);
+        final var table = lrTable.compile();
+        final var compressed = lrTable.compress();
+        final var trace = recordTrace(table, tokens);
+        final var count = trace.statuses.length;
+        System.out.printf("tokens: %d, ACTION lookups: %d%n", tokens.size(), count);
+
+        final var statuses = new Status[count];
+        final var terminals = new int[count];
+        for (int i = 0; i < count; i++) {
+            statuses[i] = table.getStatus(trace.statuses[i]);
+            terminals[i] = table.terminalOrdinal(trace.kinds[i]);
+        }
+
+        final var blackhole = new long[1];
+        final var hashed = BenchmarkUtils.measure(5, 10, () -> {
+            final var begin = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += statuses[i].getAction(trace.kinds[i]).getKind().ordinal();
+            }
+            blackhole[0] += sum;
+            return System.nanoTime() - begin;
+        });
+        final var dense = BenchmarkUtils.measure(5, 10, () -> {
+            final var begin = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += CompiledLRTable.kindOf(table.action(trace.statuses[i], terminals[i]));
+            }
+            blackhole[0] += sum;
+            return System.nanoTime() - begin;
+        });
+        final var comb = BenchmarkUtils.measure(5, 10, () -> {
+            final var begin = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += CompiledLRTable.kindOf(compressed.action(trace.statuses[i], terminals[i]));
+            }
+            blackhole[0] += sum;
+            return System.nanoTime() - begin;
+        });
+
+        System.out.printf("%-20s %8.2f ns/lookup%n", "Status.getAction", hashed / count);
+        System.out.printf("%-20s %8.2f ns/lookup%n", "compiled table", dense / count);
+        System.out.printf("%-20s %8.2f ns/lookup  %s%n", "compressed table", comb / count, compressed);
+        System.out.println("(checksum " + blackhole[0] + ")");
+    }
+
+    private record Trace(int[] statuses, TokenKind[] kinds) {
+    }
+
+    /**
+     * 用编译后的表模拟分析过程, 记录每一次 ACTION 查找
+     */
+    private static Trace recordTrace(CompiledLRTable table, List<Token> tokens) {
+        final var statuses = new ArrayList<Integer>();
+        final var kinds = new ArrayList<TokenKind>();
+
+        final var stack = new ArrayList<Integer>();
+        stack.add(table.initStatus());
+        int position = 0;
+        while (position < tokens.size()) {
+            final var top = stack.get(stack.size() - 1);
+            final var kind = tokens.get(position).getKind();
+            statuses.add(top);
+            kinds.add(kind);
+
+            final var action = table.action(top, kind);
+            switch (CompiledLRTable.kindOf(action)) {
+                case CompiledLRTable.SHIFT -> {
+                    stack.add(CompiledLRTable.targetOf(action));
+                    position++;
+                }
+                case CompiledLRTable.REDUCE -> {
+                    final var production = CompiledLRTable.targetOf(action);
+                    for (int i = 0; i < table.bodyLength(production); i++) {
+                        stack.remove(stack.size() - 1);
+                    }
+                    stack.add(table.goto_(stack.get(stack.size() - 1), table.headOf(production)));
+                }
+                case CompiledLRTable.ACCEPT -> position = tokens.size();
+                default -> throw new RuntimeException("Syntax error at token " + position);
+            }
+        }
+
+        return new Trace(statuses.stream().mapToInt(Integer::intValue).toArray(), kinds.toArray(new TokenKind[0]));
+    }
+}
@@ -0,0 +1,46 @@
+package cn.edu.hitsz.compiler.ir;
+
+import java.util.List;
+
+/**
+ * 一次编译的 IR 命名上下文, 负责分配该编译中的临时变量
+ * <br>
+ * 临时变量的编号只在同一个 IRBuilder 中唯一, 各次编译各用各的计数, 所以生成的 IR 与同一 JVM 中其它编译的先后和所在线程无关.
+ * 同一次编译中生成 IR 与生成汇编时新增的临时变量应来自同一个 IRBuilder, 或由 {@link #continuing(List)} 接着已有的 IR 编号, 以免冲突.
+ * IRBuilder 不是线程安全的, 一次编译只应在一个线程中使用它.
+ */
+public final class IRBuilder {
+    private int count = 0;
+
+    /**
+     * @return 一个新的临时变量, 名字为 "$" 加上编号, 编号从 0 开始
+     */
+    public IRVariable temp() {
+        return IRVariable.temp(count++);
+    }
+
+    /**
+     * @param instructions 已有的 IR
+     * @return 从已有 IR 中最大的临时变量编号之后开始分配的 IRBuilder
+     */
+    public static IRBuilder continuing(List<Instruction> instructions) {
+        final var builder = new IRBuilder();
+        for (final var instruction : instructions) {
+            if (instruction.getKind() != InstructionKind.RET) {
+                builder.skip(instruction.getResult());
+            }
+            for (final var operand : instruction.getOperands()) {
+                if (operand instanceof IRVariable variable) {
+                    builder.skip(variable);
+                }
+            }
+        }
+        return builder;
+    }
+
+    private void skip(IRVariable variable) {
+        if (variable.isTemp()) {
+            count = Math.max(count, variable.getTempIndex() + 1);
+        }
+    }
+}
@@ -6,30 +6,55 @@ package cn.edu.hitsz.compiler.ir;
  * 我们允许 IR 中的变量保存一些有关源语言的信息 -- 比如它在源语言里对应的是具体的源语言变量还是源语言中的临时变量. 这些信息用一个字符串
  * name 来表示. 临时变量的 name 都是 "$[0-9]+", 而非临时变量的 name 都是 "[a-zA-Z_][a-zA-Z0-9_]*"
  * <br>
- * IR 变量的等价性由 name 唯一确定.
+ * IR 变量的等价性由一个整数编号唯一确定: 具体变量的编号即其在符号表中的编号, 临时变量的编号为负数.
+ * 这样后端以 IR 变量为键的各种映射只需比较整数, 而不必反复计算和比较字符串.
  */
 public class IRVariable implements IRValue {
     /**
-     * @param name 源语言中变量的名字
+     * @param symbolId 源语言中变量在符号表中的编号
+     * @param name     源语言中变量的名字
      * @return 一个对应于源语言中具体变量的 IRVariable
      */
-    public static IRVariable named(String name) {
-        return new IRVariable(name);
+    public static IRVariable named(int symbolId, String name) {
+        if (symbolId < 0) {
+            throw new RuntimeException("Illegal symbol id: " + symbolId);
+        }
+        return new IRVariable(symbolId, name);
     }
 
     /**
-     * @return 一个对应于源语言中的临时变量的新 IRVariable
+     * 临时变量只应通过 {@link IRBuilder#temp()} 获得, 以保证编号在一次编译中唯一
+     *
+     * @param index 临时变量的编号
+     * @return 一个对应于源语言中的临时变量的 IRVariable
      */
-    public static IRVariable temp() {
-        return new IRVariable("$" + count++);
+    static IRVariable temp(int index) {
+        return new IRVariable(-(index + 1), "$" + index);
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * @return 具体变量在符号表中的编号; 临时变量为负数
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return 临时变量的编号, 即名字中 "$" 之后的数字
+     */
+    public int getTempIndex() {
+        if (!isTemp()) {
+            throw new RuntimeException("Not a temp variable: " + name);
+        }
+        return -id - 1;
+    }
+
     public boolean isTemp() {
-        return name.startsWith("$");
+        return id < 0;
     }
 
     public boolean isNamed() {
@@ -43,18 +68,19 @@ public class IRVariable implements IRValue {
 
     @Override
     public boolean equals(Object obj) {
-        return obj instanceof IRVariable reg && name.equals(reg.name);
+        return obj instanceof IRVariable reg && id == reg.id;
     }
 
     @Override
     public int hashCode() {
-        return name.hashCode();
+        return id;
     }
 
-    private IRVariable(String name) {
+    private IRVariable(int id, String name) {
+        this.id = id;
         this.name = name;
     }
 
+    private final int id;
     private final String name;
-    private static int count = 0;
 }
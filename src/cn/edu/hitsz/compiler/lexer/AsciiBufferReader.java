@@ -0,0 +1,62 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+/**
+ * 把只含 ASCII 字符的字节缓冲区 (一般是内存映射的源代码文件) 当作 Reader 读取
+ * <br>
+ * 每个字节直接扩展为一个字符, 不经过字符集解码, 也不会在堆上生成整个文件的副本.
+ * 调用方应先用 {@link #isAscii(ByteBuffer)} 确认内容确实全为 ASCII.
+ */
+final class AsciiBufferReader extends Reader {
+    private final ByteBuffer buffer;
+    private final byte[] chunk = new byte[8192];
+
+    /**
+     * @param buffer 字节缓冲区, 从其当前 position 读到 limit
+     */
+    AsciiBufferReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @param buffer 字节缓冲区
+     * @return 缓冲区 [0, limit) 中是否只有 ASCII 字符
+     */
+    static boolean isAscii(ByteBuffer buffer) {
+        final var limit = buffer.limit();
+        int idx = 0;
+        // 一次检查 8 个字节的最高位
+        for (; idx + Long.BYTES <= limit; idx += Long.BYTES) {
+            if ((buffer.getLong(idx) & 0x8080808080808080L) != 0) {
+                return false;
+            }
+        }
+        for (; idx < limit; idx++) {
+            if (buffer.get(idx) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+
+        final var count = Math.min(Math.min(len, chunk.length), buffer.remaining());
+        buffer.get(chunk, 0, count);
+        for (int i = 0; i < count; i++) {
+            cbuf[off + i] = (char) chunk[i];
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        // 映射的缓冲区由 GC 回收, 这里无需释放
+    }
+}
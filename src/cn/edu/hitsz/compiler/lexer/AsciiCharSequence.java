@@ -0,0 +1,47 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 将只含 ASCII 字符的字节缓冲区视作字符序列, 只在截取子序列时才复制出字符串
+ *
+ * @see AsciiBufferReader
+ */
+final class AsciiCharSequence implements CharSequence {
+    private final ByteBuffer buffer;
+    private final int begin;
+    private final int end;
+
+    AsciiCharSequence(ByteBuffer buffer) {
+        this(buffer, 0, buffer.limit());
+    }
+
+    private AsciiCharSequence(ByteBuffer buffer, int begin, int end) {
+        this.buffer = buffer;
+        this.begin = begin;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - begin;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) buffer.get(begin + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new AsciiCharSequence(buffer, begin + start, begin + end);
+    }
+
+    @Override
+    public String toString() {
+        final var bytes = new byte[length()];
+        buffer.get(begin, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
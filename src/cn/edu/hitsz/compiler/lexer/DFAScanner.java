@@ -0,0 +1,232 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.Cancellation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 以 {@link LexerDFA} 的转移表驱动的扫描器, 每次调用 {@link #next()} 识别出一个词法单元
+ * <br>
+ * 识别到标识符时与 {@link LexicalAnalyzer#run()} 一样维护符号表, 并以符号编号标记标识符.
+ * <br>
+ * 扫描器既可以直接扫描完整的字符数组, 也可以从 Reader 按需读入: 此时缓冲区只是源代码的一个窗口,
+ * 读到窗口末尾时把当前词法单元已读的部分移到缓冲区开头再继续读入, 所占内存与源代码大小无关.
+ */
+final class DFAScanner {
+    private final SymbolTable symbolTable;
+    // 以接受状态为下标的词法单元类型
+    private final TokenKind[] acceptKinds;
+    // 关键词及其词法单元类型, 在构造出字符串之前就直接比较字符
+    private static final char[][] KEYWORDS = {"int".toCharArray(), "return".toCharArray()};
+    private final TokenKind[] keywordKinds = new TokenKind[KEYWORDS.length];
+
+    // 从 Reader 读入时每次读取的字符数
+    private static final int WINDOW_SIZE = 8192;
+
+    // 按需读入的来源, 为 null 表示缓冲区中已是全部源代码或来源已读完
+    private Reader reader;
+    // 缓冲区, 及其中有效字符的个数
+    private char[] buffer;
+    private int limit;
+    // 缓冲区开头在源代码中的偏移
+    private int offset = 0;
+    // 下一个待读字符与当前词法单元开头在缓冲区中的位置
+    private int position = 0;
+    private int begin = 0;
+    // 当前词法单元是否带有文本, 以及已经构造出的文本
+    private boolean textual = false;
+    private String text = null;
+    // 当前词法单元为标识符时, 其在符号表中的编号
+    private int symbolId = -1;
+    // 已识别的词法单元数, 用于定期检查是否被取消
+    private int scanned = 0;
+
+    /**
+     * @param buffer      源代码字符
+     * @param limit       有效字符的个数
+     * @param symbolTable 符号表
+     * @param tokenKinds  码点文件中的全部类型
+     */
+    DFAScanner(char[] buffer, int limit, SymbolTable symbolTable, TokenKinds tokenKinds) {
+        this(null, buffer, limit, symbolTable, tokenKinds);
+    }
+
+    /**
+     * @param reader      源代码来源, 扫描器读完后会将其关闭
+     * @param symbolTable 符号表
+     * @param tokenKinds  码点文件中的全部类型
+     */
+    DFAScanner(Reader reader, SymbolTable symbolTable, TokenKinds tokenKinds) {
+        this(reader, new char[WINDOW_SIZE], 0, symbolTable, tokenKinds);
+    }
+
+    private DFAScanner(Reader reader, char[] buffer, int limit, SymbolTable symbolTable, TokenKinds tokenKinds) {
+        this.reader = reader;
+        this.buffer = buffer;
+        this.limit = limit;
+        this.symbolTable = symbolTable;
+        this.acceptKinds = LexerDFA.resolveAcceptKinds(tokenKinds);
+
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            keywordKinds[i] = tokenKinds.fromString(new String(KEYWORDS[i]));
+        }
+    }
+
+    /**
+     * 识别下一个词法单元
+     *
+     * @return 识别出的词法单元, 源代码已读完时返回 null (不会返回 EOF)
+     * @throws RuntimeException 遇到无法识别的字符
+     */
+    Token next() {
+        final var kind = scan();
+        if (kind == null) {
+            return null;
+        }
+        if (symbolId >= 0) {
+            return Token.identifier(kind, text, symbolId);
+        }
+        return textual ? Token.normal(kind, text()) : Token.simple(kind);
+    }
+
+    /**
+     * 识别下一个词法单元但不构造 Token, 其位置与文本可随后通过 {@link #tokenOffset()} 等方法获得
+     *
+     * @return 识别出的词法单元的类型, 源代码已读完时返回 null
+     * @throws RuntimeException 遇到无法识别的字符
+     */
+    TokenKind scan() {
+        Cancellation.checkpoint(++scanned);
+        final var transitions = LexerDFA.TRANSITIONS;
+
+        int state = LexerDFA.START;
+        begin = position;
+        while (true) {
+            if (position == limit && reader != null) {
+                refill();
+                continue;
+            }
+
+            final var charClass = position < limit ? LexerDFA.classOf(buffer[position]) : LexerDFA.CLASS_EOF;
+            state = transitions[state][charClass];
+
+            if (LexerDFA.isAccept(state)) {
+                // 需回退的状态不消耗当前字符
+                if (!LexerDFA.isRetract(state)) {
+                    position++;
+                }
+                break;
+            }
+            if (state == LexerDFA.ERROR) {
+                throw new RuntimeException("Illegal character '%c' at %d".formatted(buffer[position], offset + position));
+            }
+
+            position++;
+            // 仍处于初态说明刚才读到的是空白
+            if (state == LexerDFA.START) {
+                begin = position;
+            }
+        }
+
+        text = null;
+        symbolId = -1;
+        textual = state == LexerDFA.ID || state == LexerDFA.INT_CONST;
+        return switch (state) {
+            case LexerDFA.END -> null;
+            case LexerDFA.ID -> {
+                final var keyword = matchKeyword();
+                if (keyword != null) {
+                    textual = false;
+                    yield keyword;
+                }
+                // 直接在缓冲区上查找符号, 已出现过的标识符不会再构造字符串
+                symbolId = symbolTable.intern(buffer, begin, position - begin);
+                text = symbolTable.get(symbolId).getText();
+                yield acceptKinds[state];
+            }
+            default -> acceptKinds[state];
+        };
+    }
+
+    /**
+     * @return 上一个识别出的词法单元在源代码中的偏移
+     */
+    int tokenOffset() {
+        return offset + begin;
+    }
+
+    /**
+     * @return 上一个识别出的词法单元在源代码中的长度
+     */
+    int tokenLength() {
+        return position - begin;
+    }
+
+    /**
+     * @return 上一个识别出的词法单元是否带有文本 (标识符与整数)
+     */
+    boolean hasText() {
+        return textual;
+    }
+
+    /**
+     * @return 上一个识别出的词法单元为标识符时其在符号表中的编号, 否则为 -1
+     */
+    int symbolId() {
+        return symbolId;
+    }
+
+    /**
+     * @return 上一个识别出的词法单元的文本
+     */
+    String text() {
+        if (text == null) {
+            text = new String(buffer, begin, position - begin);
+        }
+        return text;
+    }
+
+    /**
+     * @return 当前词法单元是关键词时返回其类型, 否则返回 null
+     */
+    private TokenKind matchKeyword() {
+        final var length = position - begin;
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            if (KEYWORDS[i].length == length
+                && Arrays.equals(KEYWORDS[i], 0, length, buffer, begin, position)) {
+                return keywordKinds[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 从 Reader 读入更多字符: 先丢弃当前词法单元之前已扫描过的字符, 缓冲区不够放下当前词法单元时再扩容
+     */
+    private void refill() {
+        final var kept = limit - begin;
+        if (kept == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        System.arraycopy(buffer, begin, buffer, 0, kept);
+        offset += begin;
+        position -= begin;
+        begin = 0;
+        limit = kept;
+
+        try {
+            final var count = reader.read(buffer, limit, buffer.length - limit);
+            if (count < 0) {
+                reader.close();
+                reader = null;
+            } else {
+                limit += count;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on reading source", e);
+        }
+    }
+}
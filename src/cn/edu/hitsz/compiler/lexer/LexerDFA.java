@@ -0,0 +1,159 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import java.util.Arrays;
+
+/**
+ * 预先编译为二维转移表的词法分析 DFA
+ * <br>
+ * 与 {@link LexicalAnalyzer#run()} 中以嵌套 switch 表达的自动机完全等价, 只是把 "状态 x 字符" 的分派提前到类加载时完成:
+ * 字符先经 {@link #classOf(int)} 映射为字符类, 再以 {@code TRANSITIONS[state][charClass]} 查出下一状态,
+ * 接受状态与需要回退一个字符的状态则分别用一个 long 位图表示, 热路径上不再有装箱, 集合查找与临时 boolean.
+ * <br>
+ * 状态编号沿用原自动机的编号 (0 为初态, 1/3 为读取标识符/整数中, 2/4 与 5~13 为接受状态), 另增加了结束与错误两个状态.
+ */
+final class LexerDFA {
+    //==================================== 字符类 ========================================//
+    static final int CLASS_OTHER = 0;
+    static final int CLASS_BLANK = 1;
+    static final int CLASS_LETTER = 2;
+    static final int CLASS_DIGIT = 3;
+    static final int CLASS_UNDERLINE = 4;
+    static final int CLASS_EQUAL = 5;
+    static final int CLASS_COMMA = 6;
+    static final int CLASS_SEMICOLON = 7;
+    static final int CLASS_PLUS = 8;
+    static final int CLASS_MINUS = 9;
+    static final int CLASS_STAR = 10;
+    static final int CLASS_SLASH = 11;
+    static final int CLASS_LEFT_PAREN = 12;
+    static final int CLASS_RIGHT_PAREN = 13;
+    static final int CLASS_EOF = 14;
+    static final int CLASS_COUNT = 15;
+
+    //==================================== 状态 ========================================//
+    static final int START = 0;
+    static final int IN_ID = 1;
+    static final int ID = 2;
+    static final int IN_INT_CONST = 3;
+    static final int INT_CONST = 4;
+    // 5 ~ 13 为各单字符符号的接受状态, 顺序与 CLASS_EQUAL ~ CLASS_RIGHT_PAREN 一致
+    static final int FIRST_SYMBOL = 5;
+    static final int LAST_SYMBOL = 13;
+    static final int END = 14;
+    static final int ERROR = 15;
+    static final int STATE_COUNT = 16;
+
+    /**
+     * 转移表, {@code TRANSITIONS[state][charClass]} 为下一状态
+     */
+    static final int[][] TRANSITIONS = new int[STATE_COUNT][CLASS_COUNT];
+
+    /**
+     * 接受状态位图, 第 i 位为 1 表示状态 i 为接受状态
+     */
+    static final long ACCEPT;
+
+    /**
+     * 需要回退的接受状态位图: 进入这些状态的那个字符不属于当前词法单元
+     */
+    static final long RETRACT;
+
+    /**
+     * ASCII 字符到字符类的映射, 其余字符均为 {@link #CLASS_OTHER}
+     */
+    private static final byte[] CHAR_CLASS = new byte[128];
+
+    /**
+     * 各接受状态对应的词法单元类型的标识符, 标识符状态还需再区分关键字
+     */
+    private static final String[] ACCEPT_KIND_IDS = new String[STATE_COUNT];
+
+    static {
+        for (final var c : new char[]{' ', '\t', '\n', '\r'}) {
+            CHAR_CLASS[c] = CLASS_BLANK;
+        }
+        for (int c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASS[c] = CLASS_LETTER;
+            CHAR_CLASS[c - 'a' + 'A'] = CLASS_LETTER;
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            CHAR_CLASS[c] = CLASS_DIGIT;
+        }
+        CHAR_CLASS['_'] = CLASS_UNDERLINE;
+
+        // 单字符符号: 字符类与接受状态一一对应
+        final var symbols = "=,;+-*/()";
+        final var symbolKindIds = new String[]{"=", ",", "Semicolon", "+", "-", "*", "/", "(", ")"};
+        for (int i = 0; i < symbols.length(); i++) {
+            CHAR_CLASS[symbols.charAt(i)] = (byte) (CLASS_EQUAL + i);
+            ACCEPT_KIND_IDS[FIRST_SYMBOL + i] = symbolKindIds[i];
+        }
+        ACCEPT_KIND_IDS[ID] = "id";
+        ACCEPT_KIND_IDS[INT_CONST] = "IntConst";
+
+        // 未列出的转移均进入错误状态
+        for (final var row : TRANSITIONS) {
+            Arrays.fill(row, ERROR);
+        }
+
+        // 初态: 跳过空白, 根据首字符进入对应状态
+        TRANSITIONS[START][CLASS_BLANK] = START;
+        TRANSITIONS[START][CLASS_LETTER] = IN_ID;
+        TRANSITIONS[START][CLASS_UNDERLINE] = IN_ID;
+        TRANSITIONS[START][CLASS_DIGIT] = IN_INT_CONST;
+        TRANSITIONS[START][CLASS_EOF] = END;
+        for (int cls = CLASS_EQUAL; cls <= CLASS_RIGHT_PAREN; cls++) {
+            TRANSITIONS[START][cls] = FIRST_SYMBOL + cls - CLASS_EQUAL;
+        }
+
+        // 标识符与整数: 遇到不能继续的字符 (包括文件结尾) 即接受并回退
+        Arrays.fill(TRANSITIONS[IN_ID], ID);
+        TRANSITIONS[IN_ID][CLASS_LETTER] = IN_ID;
+        Arrays.fill(TRANSITIONS[IN_INT_CONST], INT_CONST);
+        TRANSITIONS[IN_INT_CONST][CLASS_DIGIT] = IN_INT_CONST;
+
+        long accept = 0;
+        for (int state = ID; state <= END; state++) {
+            if (state != IN_INT_CONST) {
+                accept |= 1L << state;
+            }
+        }
+        ACCEPT = accept;
+        RETRACT = (1L << ID) | (1L << INT_CONST) | (1L << END);
+    }
+
+    /**
+     * @param c 字符
+     * @return 该字符所属的字符类
+     */
+    static int classOf(int c) {
+        return c < CHAR_CLASS.length ? CHAR_CLASS[c] : CLASS_OTHER;
+    }
+
+    static boolean isAccept(int state) {
+        return ((ACCEPT >>> state) & 1L) != 0;
+    }
+
+    static boolean isRetract(int state) {
+        return ((RETRACT >>> state) & 1L) != 0;
+    }
+
+    /**
+     * 将各接受状态解析为对应的 TokenKind
+     *
+     * @param tokenKinds 码点文件中的全部类型
+     * @return 以状态为下标的 TokenKind 数组, 非接受状态处为 null
+     */
+    static TokenKind[] resolveAcceptKinds(TokenKinds tokenKinds) {
+        final var kinds = new TokenKind[STATE_COUNT];
+        for (int state = 0; state < STATE_COUNT; state++) {
+            if (ACCEPT_KIND_IDS[state] != null) {
+                kinds[state] = tokenKinds.fromString(ACCEPT_KIND_IDS[state]);
+            }
+        }
+        return kinds;
+    }
+
+    private LexerDFA() {
+    }
+}
@@ -3,6 +3,11 @@ package cn.edu.hitsz.compiler.lexer;
 import cn.edu.hitsz.compiler.symtab.SymbolTable;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.StringCharacterIterator;
 import java.util.*;
 import java.util.stream.StreamSupport;
@@ -18,14 +23,34 @@ import java.util.stream.StreamSupport;
 public class LexicalAnalyzer {
     // 符号表
     private final SymbolTable symbolTable;
+    // 码点文件中的全部类型
+    private final TokenKinds tokenKinds;
     // 词法单元列表
     private final List<Token> tokens = new LinkedList<>();
 
+    // 源代码文本
+    private String source = null;
+    // 内存映射的源代码, 仅在其内容全为 ASCII 字符时使用
+    private ByteBuffer mappedSource = null;
     // 字符串字符迭代器
     private StringCharacterIterator iterator = null;
+    // 流式分析时使用的扫描器, 为 null 表示并非流式分析或其词法单元已被取走
+    private DFAScanner streamScanner = null;
+    private boolean streaming = false;
+    // 紧凑表示的词法单元流, 由 runPacked 生成
+    private TokenStream tokenStream = null;
 
     public LexicalAnalyzer(SymbolTable symbolTable) {
+        this(symbolTable, TokenKind.standard());
+    }
+
+    /**
+     * @param symbolTable 符号表
+     * @param tokenKinds  词法单元的类型取自这些类型, 而非默认的码点文件
+     */
+    public LexicalAnalyzer(SymbolTable symbolTable, TokenKinds tokenKinds) {
         this.symbolTable = symbolTable;
+        this.tokenKinds = tokenKinds;
     }
 
     /**
@@ -39,7 +64,59 @@ public class LexicalAnalyzer {
         // 或直接采用完整读入方法
 
         // 直接读入文本文件中所有字符并创建StringCharacterIterator
-        iterator = new StringCharacterIterator(FileUtils.readFile(path));
+        source = FileUtils.readFile(path);
+        iterator = new StringCharacterIterator(source);
+        mappedSource = null;
+        streaming = false;
+    }
+
+    /**
+     * 以内存映射的方式加载源代码文件, 之后应调用 {@link #runTableDriven()} 进行分析
+     * <br>
+     * loadFile 会先按行读入, 再拼接成字符串, 再构造迭代器, 文件在堆上被复制了数次; 而内存映射时,
+     * 词法分析直接从映射的缓冲区中按 ASCII 字节读取, 堆上只有一个固定大小的窗口.
+     * 文件中含有非 ASCII 字符时无法按字节直接读取, 此时退回到 loadFile 的做法.
+     *
+     * @param path 路径
+     */
+    public void loadMappedFile(String path) {
+        final var buffer = FileUtils.mapFile(path);
+        if (AsciiBufferReader.isAscii(buffer)) {
+            source = null;
+            iterator = null;
+            mappedSource = buffer;
+            streaming = false;
+        } else {
+            loadFile(path);
+        }
+    }
+
+    /**
+     * 以流式方式打开源代码文件, 此后无需调用 run, {@link #getTokens()} 返回的是按需分析的词法单元序列
+     *
+     * @param path 路径
+     * @see #openReader(Reader)
+     */
+    public void openFile(String path) {
+        try {
+            openReader(Files.newBufferedReader(Paths.get(path)));
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on " + path, e);
+        }
+    }
+
+    /**
+     * 以流式方式从 Reader 读入源代码
+     * <br>
+     * 词法分析只在取用词法单元时才进行, 语法分析每读入一个词法单元, 扫描器才向后识别一个,
+     * 因此词法分析部分所占的内存与源代码大小无关. 相应地, 得到的词法单元序列只能被遍历一次,
+     * 符号表也要到序列被遍历完才是完整的.
+     *
+     * @param reader 源代码来源, 读完后会被关闭
+     */
+    public void openReader(Reader reader) {
+        streamScanner = new DFAScanner(reader, symbolTable, tokenKinds);
+        streaming = true;
     }
 
     /**
@@ -47,14 +124,22 @@ public class LexicalAnalyzer {
      * 需要维护实验一所需的符号表条目, 而得在语法分析中才能确定的符号表条目的成员可以先设置为 null
      */
     public void run() {
+        if (iterator == null) {
+            throw new RuntimeException("run() requires source loaded by loadFile");
+        }
+
         // 自动机实现的词法分析过程
 
         // 当前状态
         int currentState = 0;
         // 接受状态集合
         Set<Integer> acceptedStates = new HashSet<>(Arrays.asList(2,4,5,6,7,8,9,10,11,12,13));
-        // 关键词集合
-        Set<String> keyWords = new HashSet<>(Arrays.asList("int","return"));
+        // 关键词集合及其对应的词法单元类型
+        Map<String, TokenKind> keyWords = Map.of(
+            "int", tokenKinds.fromString("int"),
+            "return", tokenKinds.fromString("return"));
+        // 各接受状态对应的词法单元类型, 状态编号与 LexerDFA 一致, 预先解析以免每个词法单元都按字符串查找
+        TokenKind[] acceptKinds = LexerDFA.resolveAcceptKinds(tokenKinds);
 
         StringBuilder id = new StringBuilder();
         StringBuilder intConst = new StringBuilder();
@@ -133,12 +218,14 @@ public class LexicalAnalyzer {
                             // 提取标识符并清空StringBuilder
                             String str = id.toString();
                             id.setLength(0);
-                            // 省略关键词，填入符号表
-                            if (!keyWords.contains(str) && !symbolTable.has(str)) {
-                                symbolTable.add(str);
+                            // 关键词直接填入词法单元表
+                            TokenKind keyWord = keyWords.get(str);
+                            if (keyWord != null) {
+                                yield Token.simple(keyWord);
                             }
-                            // 关键词与标识符填入词法单元表
-                            yield keyWords.contains(str) ? Token.simple(str) : Token.normal("id", str);
+                            // 标识符填入符号表, 并以符号编号填入词法单元表
+                            int symbolId = symbolTable.intern(str);
+                            yield Token.identifier(acceptKinds[2], symbolTable.get(symbolId).getText(), symbolId);
                         }
                         // 接受整型数结束
                         case 4 -> {
@@ -146,18 +233,10 @@ public class LexicalAnalyzer {
                             String str = intConst.toString();
                             intConst.setLength(0);
                             // 整型数填入此法单元表
-                            yield Token.normal("IntConst", str);
+                            yield Token.normal(acceptKinds[4], str);
                         }
-                        // 接受其他符号
-                        case 5 -> Token.simple("=");
-                        case 6 -> Token.simple(",");
-                        case 7 -> Token.simple("Semicolon");
-                        case 8 -> Token.simple("+");
-                        case 9 -> Token.simple("-");
-                        case 10 -> Token.simple("*");
-                        case 11 -> Token.simple("/");
-                        case 12 -> Token.simple("(");
-                        case 13 -> Token.simple(")");
+                        // 接受其他符号: = , Semicolon + - * / ( )
+                        case 5, 6, 7, 8, 9, 10, 11, 12, 13 -> Token.simple(acceptKinds[nextState]);
                         default -> throw new RuntimeException("Illegal State!");
                     });
                 }
@@ -174,18 +253,143 @@ public class LexicalAnalyzer {
     }
 
     /**
-     * 获得词法分析的结果, 保证在调用了 run 方法之后调用
+     * 以预先编译的 DFA 转移表执行词法分析, 结果与 {@link #run()} 相同
+     * <br>
+     * 与 run 中逐字符 switch 的自动机不同, 该方法按字符类查 {@link LexerDFA} 的转移表, 适合较大的输入
+     *
+     * @see LexerDFA
+     */
+    public void runTableDriven() {
+        final var scanner = createScanner();
+        for (var token = scanner.next(); token != null; token = scanner.next()) {
+            tokens.add(token);
+        }
+        //末尾添加EOF
+        tokens.add(Token.eof());
+        System.out.println("Lexical analyze over");
+    }
+
+    /**
+     * 与 {@link #runTableDriven()} 相同, 但结果以紧凑的 {@link TokenStream} 保存, 不为每个词法单元构造对象
+     * <br>
+     * 词法单元流引用源代码本身 (字符串或内存映射的缓冲区) 来按需截取词素, 因此不支持以 openFile/openReader 流式分析的源代码.
+     * 此后 {@link #getTokens()} 返回的即为该词法单元流.
      *
-     * @return Token 列表
+     * @return 词法单元流
+     */
+    public TokenStream runPacked() {
+        if (source == null && mappedSource == null) {
+            throw new RuntimeException("runPacked() requires source loaded by loadFile or loadMappedFile");
+        }
+
+        final var stream = pack(mappedSource != null ? new AsciiCharSequence(mappedSource) : source,
+            createScanner(), symbolTable, tokenKinds);
+        tokenStream = stream;
+        System.out.println("Lexical analyze over");
+        return stream;
+    }
+
+    /**
+     * 对一段源代码做紧凑的词法分析, 不输出提示, 也不改变任何 LexicalAnalyzer 的状态.
+     * 增量编译以此只重新分析被修改的区域, 只要区域的边界同时也是词法单元的边界, 结果就与分析整个文件时的对应部分相同.
+     * 遇到词法错误时, 出错之前扫描到的标识符已经加入了符号表, 需要时可以用 {@link SymbolTable#mark()} 与 {@link SymbolTable#rollback(int)} 撤销.
+     *
+     * @param source      源代码片段
+     * @param symbolTable 符号表, 片段中的标识符会加入其中
+     * @return 词法单元流, 偏移相对于片段开头, 末尾为 EOF
+     */
+    public static TokenStream tokenize(String source, SymbolTable symbolTable) {
+        return tokenize(source, symbolTable, TokenKind.standard());
+    }
+
+    /**
+     * 同 {@link #tokenize(String, SymbolTable)}, 但词法单元的类型取自给定的码点文件
+     *
+     * @param source      源代码片段
+     * @param symbolTable 符号表, 片段中的标识符会加入其中
+     * @param tokenKinds  码点文件中的全部类型
+     * @return 词法单元流, 偏移相对于片段开头, 末尾为 EOF
+     */
+    public static TokenStream tokenize(String source, SymbolTable symbolTable, TokenKinds tokenKinds) {
+        return pack(source, new DFAScanner(source.toCharArray(), source.length(), symbolTable, tokenKinds),
+            symbolTable, tokenKinds);
+    }
+
+    private static TokenStream pack(CharSequence source, DFAScanner scanner, SymbolTable symbolTable,
+                                    TokenKinds tokenKinds) {
+        final var stream = new TokenStream(source, symbolTable, tokenKinds,
+            LexerDFA.resolveAcceptKinds(tokenKinds)[LexerDFA.ID]);
+        for (var kind = scanner.scan(); kind != null; kind = scanner.scan()) {
+            if (scanner.symbolId() >= 0) {
+                stream.addIdentifier(kind, scanner.tokenOffset(), scanner.symbolId());
+            } else {
+                stream.add(kind, scanner.tokenOffset(), scanner.tokenLength(), scanner.hasText());
+            }
+        }
+        //末尾添加EOF
+        stream.add(TokenKind.eof(), scanner.tokenOffset(), 0, false);
+        return stream;
+    }
+
+    private DFAScanner createScanner() {
+        // 映射的缓冲区要复制一个视图再读取, 以免读取时改变其 position
+        return mappedSource != null
+            ? new DFAScanner(new AsciiBufferReader(mappedSource.duplicate()), symbolTable, tokenKinds)
+            : new DFAScanner(source.toCharArray(), source.length(), symbolTable, tokenKinds);
+    }
+
+    /**
+     * 获得词法分析的结果, 保证在调用了 run 方法之后调用 (以 openFile/openReader 流式分析时除外)
+     *
+     * @return Token 列表, 流式分析时为只能遍历一次的按需分析的序列
      */
     public Iterable<Token> getTokens() {
         // 从词法分析过程中获取 Token 列表
         // 词法分析过程可以使用 Stream 或 Iterator 实现按需分析
         // 亦可以直接分析完整个文件
         // 总之实现过程能转化为一列表即可
+
+        // 流式分析时返回按需分析的迭代器, 末尾同样带有 EOF
+        if (streaming) {
+            return this::streamTokens;
+        }
+        if (tokenStream != null) {
+            return tokenStream;
+        }
         return tokens;
     }
 
+    private Iterator<Token> streamTokens() {
+        if (streamScanner == null) {
+            throw new RuntimeException("Tokens of a stream can only be iterated once");
+        }
+
+        final var scanner = streamScanner;
+        streamScanner = null;
+        return new Iterator<>() {
+            private boolean finished = false;
+
+            @Override
+            public boolean hasNext() {
+                return !finished;
+            }
+
+            @Override
+            public Token next() {
+                if (finished) {
+                    throw new NoSuchElementException();
+                }
+
+                final var token = scanner.next();
+                if (token == null) {
+                    finished = true;
+                    return Token.eof();
+                }
+                return token;
+            }
+        };
+    }
+
     public void dumpTokens(String path) {
         FileUtils.writeLines(
             path,
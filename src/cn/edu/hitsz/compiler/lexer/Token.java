@@ -18,7 +18,7 @@ public class Token {
      * @return 代表 EOF 的 token
      */
     public static Token eof() {
-        return new Token(TokenKind.eof(), "");
+        return simple(TokenKind.eof());
     }
 
     /**
@@ -30,11 +30,19 @@ public class Token {
     }
 
     /**
+     * 简单 token 没有文本, 同一类型的简单 token 完全相同, 因此每种类型只构造一个共享的实例
+     *
      * @param kind token 类型
      * @return 具有该 token 类型的一简单 token (不带其它文本表示, 比如标点/关键字)
      */
     public static Token simple(TokenKind kind) {
-        return normal(kind, "");
+        // 并发时可能重复构造, 但 token 不可变, 用哪一个都一样
+        var token = kind.simpleToken;
+        if (token == null) {
+            token = new Token(kind, "");
+            kind.simpleToken = token;
+        }
+        return token;
     }
 
     /**
@@ -54,6 +62,16 @@ public class Token {
         return new Token(kind, text);
     }
 
+    /**
+     * @param kind     token 类型
+     * @param text     标识符文本
+     * @param symbolId 标识符在符号表中的编号
+     * @return 一个标识符 token, 之后的各阶段可直接以编号查找符号
+     */
+    public static Token identifier(TokenKind kind, String text, int symbolId) {
+        return new Token(kind, text, symbolId);
+    }
+
     /**
      * @return 该 token 的类型的文本表示
      */
@@ -75,16 +93,30 @@ public class Token {
         return text;
     }
 
+    /**
+     * @return 标识符 token 在符号表中的编号, 其它 token 为 -1
+     */
+    public int getSymbolId() {
+        return symbolId;
+    }
+
     @Override
     public String toString() {
-        return "(%s,%s)".formatted(kind, text);
+        return "(%s,%s)".formatted(kind, getText());
+    }
+
+    // 仅供同包中按需构造文本的 token 使用
+    Token(TokenKind kind, String text) {
+        this(kind, text, -1);
     }
 
-    private Token(TokenKind kind, String text) {
+    private Token(TokenKind kind, String text, int symbolId) {
         this.kind = kind;
         this.text = text;
+        this.symbolId = symbolId;
     }
 
     private final TokenKind kind;
     private final String text;
+    private final int symbolId;
 }
@@ -2,10 +2,7 @@ package cn.edu.hitsz.compiler.lexer;
 
 import cn.edu.hitsz.compiler.parser.table.Term;
 import cn.edu.hitsz.compiler.utils.FilePathConfig;
-import cn.edu.hitsz.compiler.utils.FileUtils;
 
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -20,38 +17,40 @@ import java.util.Map;
  * 如果你目前在完成实验, 那么只需要关注用于构造 TokenKind 的 fromString 与 eof, 用于获得信息的 getIdentifier 与 getCode 即可.
  * 倘若你有空探寻一下代码的细致实现, 那么请详见代码中的实现注释, 并同时参考 SeeAlso 中的内容.
  * <br>
+ * 各静态方法查询默认的码点文件 ({@link #standard()}); 需要在同一进程中使用多个码点文件时, 请直接使用 {@link TokenKinds}.
+ * 所有码点文件共用同一个 EOF ({@link #eof()}).
+ * <br>
  *
  * @see Term 语法项 - 构成产生式的基础元素
  * @see cn.edu.hitsz.compiler.parser.table.NonTerminal 非终止符 - 可以通过产生式被其它项规约出来的项
  * @see cn.edu.hitsz.compiler.parser.table.Production 产生式 - BNF 语法描述的基本要素
  */
 public class TokenKind extends Term {
-    // 允许用作 TokenKind 的 id 的字符串集合
-    private static final Map<String, TokenKind> allowed = new HashMap<>();
     private static final TokenKind eof = new TokenKind("$", -1);
+    // 由 loadTokenKinds 读取的默认码点文件
+    private static volatile TokenKinds standard = null;
 
     /**
-     * 从码点文件中读取允许的标识符集合
+     * 从默认的码点文件中读取允许的标识符集合, 此后本类的各静态方法查询该集合
      */
-    public static void loadTokenKinds() {
-        if (!allowed.isEmpty()) {
+    public static synchronized void loadTokenKinds() {
+        if (standard != null) {
             throw new RuntimeException("Can not set allowed twice");
         }
 
-        final var lines = FileUtils.readLines(FilePathConfig.CODING_MAP_PATH);
-        for (final var line : lines) {
-            // 码点文件每行形如:
-            // 54 IntConst
-            // 空格分割, 前面为码点, 后面为标识符
-            final var words = line.split(" ");
-            final var code = Integer.parseInt(words[0]);
-            final var id = words[1];
+        standard = TokenKinds.load(FilePathConfig.CODING_MAP_PATH);
+    }
 
-            allowed.put(id, new TokenKind(id, code));
+    /**
+     * @return 由 {@link #loadTokenKinds()} 读取的默认码点文件中的全部类型
+     * @throws RuntimeException 码点文件尚未被读取
+     */
+    public static TokenKinds standard() {
+        final var kinds = standard;
+        if (kinds == null) {
+            throw new RuntimeException("Empty allowed");
         }
-
-        // EOF
-        allowed.put("$", eof);
+        return kinds;
     }
 
     /**
@@ -59,18 +58,14 @@ public class TokenKind extends Term {
      * @return 该标识符是否被允许作为 TokenKind 的标识符
      */
     public static boolean isAllowed(String id) {
-        if (allowed == null) {
-            throw new RuntimeException("Empty allowed");
-        }
-
-        return allowed.containsKey(id);
+        return standard().isAllowed(id);
     }
 
     /**
      * @return 一个标识符到 TokenKind 的 Map, 其键集包含了所有允许的标识符
      */
     public static Map<String, TokenKind> allAllowedTokenKinds() {
-        return Collections.unmodifiableMap(allowed);
+        return standard().all();
     }
 
     /**
@@ -79,15 +74,28 @@ public class TokenKind extends Term {
      * @throws RuntimeException 码点文件尚未被读取, 或该标识符不被允许作为 TokenKind 的标识符
      */
     public static TokenKind fromString(String id) {
-        if (allowed == null || !allowed.containsKey(id)) {
+        final var kinds = standard;
+        if (kinds == null) {
             throw new RuntimeException("Illegal Identifier");
         }
+        return kinds.fromString(id);
+    }
 
-        return allowed.get(id);
+    /**
+     * @param code 码点
+     * @return 具有该码点的 TokenKind
+     * @throws RuntimeException 码点文件尚未被读取, 或没有具有该码点的 TokenKind
+     */
+    public static TokenKind fromCode(int code) {
+        final var kinds = standard;
+        if (kinds == null) {
+            throw new RuntimeException("Illegal code: " + code);
+        }
+        return kinds.fromCode(code);
     }
 
     /**
-     * @return 代表 EOF 的 TokenKind
+     * @return 代表 EOF 的 TokenKind, 为所有码点文件共用
      */
     public static TokenKind eof() {
         return eof;
@@ -107,10 +115,13 @@ public class TokenKind extends Term {
         return code;
     }
 
-    private TokenKind(String id, int code) {
+    TokenKind(String id, int code) {
         super(id);
         this.code = code;
     }
 
     private final int code;
+
+    // 该类型共享的简单 token, 由 Token.simple 按需构造
+    Token simpleToken = null;
 }
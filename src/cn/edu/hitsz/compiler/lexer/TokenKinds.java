@@ -0,0 +1,95 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 从一个码点文件读取的全部词法单元类型, 创建后不再改变
+ * <br>
+ * 不同的码点文件得到互不相干的 TokenKinds, 可以在同一进程中同时使用. 只有代表 EOF 的类型为所有 TokenKinds 共用.
+ * {@link TokenKind} 的各静态方法查询的是由 {@link TokenKind#loadTokenKinds()} 读取的默认码点文件.
+ */
+public final class TokenKinds {
+    // 允许用作 TokenKind 的 id 的字符串集合
+    private final Map<String, TokenKind> allowed;
+    // 以码点 + 1 为下标的 TokenKind (EOF 的码点为 -1), 供紧凑表示的词法单元流还原类型
+    private final TokenKind[] byCode;
+
+    private TokenKinds(Map<String, TokenKind> allowed) {
+        this.allowed = allowed;
+
+        final var maxCode = allowed.values().stream().mapToInt(TokenKind::getCode).max().orElse(-1);
+        this.byCode = new TokenKind[maxCode + 2];
+        for (final var kind : allowed.values()) {
+            byCode[kind.getCode() + 1] = kind;
+        }
+    }
+
+    /**
+     * 从码点文件中读取允许的标识符集合
+     *
+     * @param codingMapPath 码点文件路径
+     * @return 其中的全部词法单元类型
+     */
+    public static TokenKinds load(String codingMapPath) {
+        final var allowed = new HashMap<String, TokenKind>();
+        for (final var line : FileUtils.readLines(codingMapPath)) {
+            // 码点文件每行形如:
+            // 54 IntConst
+            // 空格分割, 前面为码点, 后面为标识符
+            final var words = line.split(" ");
+            final var code = Integer.parseInt(words[0]);
+            final var id = words[1];
+
+            allowed.put(id, new TokenKind(id, code));
+        }
+
+        // EOF
+        allowed.put("$", TokenKind.eof());
+        return new TokenKinds(allowed);
+    }
+
+    /**
+     * @param id 标识符
+     * @return 该标识符是否被允许作为 TokenKind 的标识符
+     */
+    public boolean isAllowed(String id) {
+        return allowed.containsKey(id);
+    }
+
+    /**
+     * @return 一个标识符到 TokenKind 的 Map, 其键集包含了所有允许的标识符
+     */
+    public Map<String, TokenKind> all() {
+        return Collections.unmodifiableMap(allowed);
+    }
+
+    /**
+     * @param id 标识符
+     * @return 该标识符对应的 TokenKind
+     * @throws RuntimeException 该标识符不被允许作为 TokenKind 的标识符
+     */
+    public TokenKind fromString(String id) {
+        final var kind = allowed.get(id);
+        if (kind == null) {
+            throw new RuntimeException("Illegal Identifier");
+        }
+        return kind;
+    }
+
+    /**
+     * @param code 码点
+     * @return 具有该码点的 TokenKind
+     * @throws RuntimeException 没有具有该码点的 TokenKind
+     */
+    public TokenKind fromCode(int code) {
+        if (code + 1 < 0 || code + 1 >= byCode.length || byCode[code + 1] == null) {
+            throw new RuntimeException("Illegal code: " + code);
+        }
+
+        return byCode[code + 1];
+    }
+}
@@ -0,0 +1,204 @@
+package cn.edu.hitsz.compiler.lexer;
+
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 紧凑表示的词法单元流
+ * <br>
+ * 每个词法单元不再是一个堆上的 Token 对象, 而是三个并列 int 数组中的一项: 类型的码点, 以及词素在源代码中的偏移与长度.
+ * 每个词法单元只占 12 字节, 词素只有在被 {@link #getText(int)} 或 {@link Token#getText()} 取用时才会构造出来.
+ * 不带文本的词法单元 (关键字, 符号与 EOF) 的长度以相反数记录, 以便与带文本的词法单元区分;
+ * 标识符的长度槽位则记录其符号编号, 文本与长度都可由符号表得到, 无需截取源代码.
+ * <br>
+ * 该类同时实现了 {@code Iterable<Token>}, 可以直接交给 {@link cn.edu.hitsz.compiler.parser.SyntaxAnalyzer#loadTokens(Iterable)}:
+ * 迭代时简单 token 使用共享的实例, 带文本的 token 则是按需读取文本的轻量对象. 末尾总是 EOF.
+ */
+public final class TokenStream implements Iterable<Token> {
+    private final CharSequence source;
+    private final SymbolTable symbolTable;
+    private final TokenKinds tokenKinds;
+    private final TokenKind identifierKind;
+    private int[] codes = new int[1024];
+    private int[] offsets = new int[1024];
+    private int[] lengths = new int[1024];
+    private int size = 0;
+
+    /**
+     * @param source         源代码, 词素从中按偏移与长度截取
+     * @param symbolTable    符号表, 标识符的文本从中获得
+     * @param tokenKinds     码点文件中的全部类型, 用于由码点还原类型
+     * @param identifierKind 标识符的类型
+     */
+    TokenStream(CharSequence source, SymbolTable symbolTable, TokenKinds tokenKinds, TokenKind identifierKind) {
+        this.source = source;
+        this.symbolTable = symbolTable;
+        this.tokenKinds = tokenKinds;
+        this.identifierKind = identifierKind;
+    }
+
+    /**
+     * 在流末尾追加一个词法单元
+     *
+     * @param kind    类型
+     * @param offset  在源代码中的偏移
+     * @param length  在源代码中的长度
+     * @param textual 是否带有文本
+     */
+    void add(TokenKind kind, int offset, int length, boolean textual) {
+        append(kind.getCode(), offset, textual ? length : -length);
+    }
+
+    /**
+     * 在流末尾追加一个标识符
+     *
+     * @param kind     标识符的类型
+     * @param offset   在源代码中的偏移
+     * @param symbolId 在符号表中的编号
+     */
+    void addIdentifier(TokenKind kind, int offset, int symbolId) {
+        assert kind == identifierKind;
+        append(kind.getCode(), offset, symbolId);
+    }
+
+    private void append(int code, int offset, int length) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+
+        codes[size] = code;
+        offsets[size] = offset;
+        lengths[size] = length;
+        size++;
+    }
+
+    private boolean isIdentifier(int index) {
+        return codes[index] == identifierKind.getCode();
+    }
+
+    /**
+     * @return 词法单元的个数 (含末尾的 EOF)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index 词法单元的下标
+     * @return 该词法单元类型的码点
+     */
+    public int getCode(int index) {
+        return codes[index];
+    }
+
+    /**
+     * @param index 词法单元的下标
+     * @return 该词法单元在源代码中的偏移
+     */
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * @param index 词法单元的下标
+     * @return 该词法单元在源代码中的长度
+     */
+    public int getLength(int index) {
+        if (isIdentifier(index)) {
+            return getText(index).length();
+        }
+        return Math.abs(lengths[index]);
+    }
+
+    /**
+     * @param index 词法单元的下标
+     * @return 标识符在符号表中的编号, 其它词法单元为 -1
+     */
+    public int getSymbolId(int index) {
+        return isIdentifier(index) ? lengths[index] : -1;
+    }
+
+    /**
+     * @param index 词法单元的下标
+     * @return 该词法单元的类型
+     */
+    public TokenKind getKind(int index) {
+        return tokenKinds.fromCode(codes[index]);
+    }
+
+    /**
+     * @param index 词法单元的下标
+     * @return 该词法单元的文本, 不带文本的词法单元为空字符串
+     */
+    public String getText(int index) {
+        if (isIdentifier(index)) {
+            return symbolTable.get(lengths[index]).getText();
+        }
+
+        final var length = lengths[index];
+        if (length <= 0) {
+            return "";
+        }
+        return source.subSequence(offsets[index], offsets[index] + length).toString();
+    }
+
+    /**
+     * @param index 词法单元的下标
+     * @return 对应的 Token 对象
+     */
+    public Token getToken(int index) {
+        final var kind = getKind(index);
+        if (isIdentifier(index)) {
+            return Token.identifier(kind, getText(index), lengths[index]);
+        }
+        return lengths[index] <= 0 ? Token.simple(kind) : new StreamToken(kind, this, index);
+    }
+
+    @Override
+    public Iterator<Token> iterator() {
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Token next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return getToken(next++);
+            }
+        };
+    }
+
+    /**
+     * 文本在首次取用时才从词法单元流中截取的 token
+     */
+    private static final class StreamToken extends Token {
+        private final TokenStream stream;
+        private final int index;
+        private String text = null;
+
+        StreamToken(TokenKind kind, TokenStream stream, int index) {
+            super(kind, null);
+            this.stream = stream;
+            this.index = index;
+        }
+
+        @Override
+        public String getText() {
+            if (text == null) {
+                text = stream.getText(index);
+            }
+            return text;
+        }
+    }
+}
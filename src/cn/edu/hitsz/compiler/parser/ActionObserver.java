@@ -16,8 +16,14 @@ import cn.edu.hitsz.compiler.symtab.SymbolTable;
  * 中, 我们只能在自己的代码实现中根据传入的 production 不同再进行动作的分派, 以此来实现 SDT. 关于此接口的一个使用的例子可以参考
  * ProductionCollector 类
  * <br>
- * 注意观察者并不能访问到 LR 驱动程序维护着的状态栈, 观察者之间维护的栈信息也不应该互相访问. 每一个实现该接口的观察者需要自己定义自己需要的
- * 状态信息并维护自己的状态栈.
+ * 注意观察者并不能访问到 LR 驱动程序维护着的状态栈, 观察者之间维护的栈信息也不应该互相访问.
+ * <br>
+ * 需要为文法符号保存属性的观察者不必自己维护与分析栈同步的栈: 在 {@link #usesAttributes()} 中返回 true,
+ * 驱动程序便会在共享的 {@link AttributeStack} 中为其分配一列 (或 {@link #attributeColumns()} 列), 并在开始分析前通过 {@link #attachAttributes(AttributeStack, int)} 告知.
+ * 驱动程序负责属性栈的移入与出栈, 观察者只在 {@link #whenReduce(Status, Production)} 中读取产生式体的属性
+ * (由 {@link AttributeStack#view(int)} 得到本列的 {@link Attributes}, 以 {@link Attributes#reset(Production)} 定位到被规约的产生式),
+ * 并以 {@link AttributeStack#setHead(int, Object)} 写入产生式头的属性. 无论注册了多少个观察者, 栈操作都只做一次.
+ * {@link SemanticObserver} 已经完成了这些步骤, 子类只需按产生式绑定处理函数.
  *
  * @see ProductionCollector
  * @see SyntaxAnalyzer
@@ -48,6 +54,30 @@ public interface ActionObserver {
      */
     void whenAccept(Status currentStatus);
 
+    /**
+     * @return 是否需要驱动程序维护的属性列, 默认为 false
+     */
+    default boolean usesAttributes() {
+        return false;
+    }
+
+    /**
+     * @return {@link #usesAttributes()} 返回 true 时需要的属性列数, 默认为 1; 例如合并了若干遍的观察者为每一遍各要一列
+     */
+    default int attributeColumns() {
+        return 1;
+    }
+
+    /**
+     * 开始分析前, 驱动程序为 {@link #usesAttributes()} 返回 true 的观察者调用此函数.
+     * 规约时此函数在产生式体出栈之前通知观察者, 故在 whenReduce 中可以读取产生式体各符号的属性.
+     *
+     * @param stack  驱动程序维护的属性栈
+     * @param column 分配给该观察者的属性列, 需要多列时为其中第一列, 其余各列紧随其后
+     */
+    default void attachAttributes(AttributeStack stack, int column) {
+    }
+
     /**
      * 当驱动程序接受符号表时会调用此函数, 实现此接口的类可以自行决定是否存储这个符号表
      *
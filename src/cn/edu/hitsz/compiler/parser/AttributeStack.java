@@ -0,0 +1,135 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.parser.table.Production;
+
+import java.util.Arrays;
+
+/**
+ * 语义属性栈, 与分析栈同步增减
+ * <br>
+ * 由驱动程序 ({@link SyntaxAnalyzer}) 维护. 每个栈元素对应分析栈中的一个文法符号, 保存移入时的词法单元 (非终结符为 null)
+ * 以及若干列属性值, 每一列属于一个使用属性的观察者 (见 {@link ActionObserver#usesAttributes()}).
+ * 所有列共用同一个栈顶, 故移入与规约时的栈操作只做一次, 与列数无关.
+ * 属性值按行连续存放在一个 Object[] 中, 移入与规约都不分配对象.
+ */
+public final class AttributeStack {
+    private final int columns;
+    private Token[] tokens = new Token[64];
+    private Object[] values;
+    private int size = 0;
+    // 规约时各列新写入的产生式头的属性, 在产生式体出栈后才放入栈中
+    private final Object[] heads;
+
+    /**
+     * @param columns 属性列数
+     */
+    AttributeStack(int columns) {
+        this.columns = columns;
+        this.values = new Object[tokens.length * columns];
+        this.heads = new Object[columns];
+    }
+
+    /**
+     * 移入一个终结符, 其各列属性为 null
+     *
+     * @param token 词法单元
+     */
+    void shift(Token token) {
+        push(token);
+    }
+
+    /**
+     * 规约: 弹出产生式体的各符号, 压入产生式头, 其属性为规约过程中由 {@link #setHead(int, Object)} 写入的值
+     *
+     * @param length 产生式体长度
+     */
+    void reduce(int length) {
+        size -= length;
+        push(null);
+        System.arraycopy(heads, 0, values, (size - 1) * columns, columns);
+        Arrays.fill(heads, null);
+    }
+
+    /**
+     * @param length 产生式体长度
+     * @return 规约该产生式时产生式体第一个符号在栈中的位置
+     */
+    int frameBase(int length) {
+        return size - length;
+    }
+
+    /**
+     * @return 栈中的元素个数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 依次压入先前取出的若干栈元素, 用于从保存的分析栈继续分析
+     *
+     * @param tokens 各元素的词法单元
+     * @param values 各元素按行存放的属性, 列数应与本栈相同
+     */
+    void pushAll(Token[] tokens, Object[] values) {
+        for (int i = 0; i < tokens.length; i++) {
+            push(tokens[i]);
+            System.arraycopy(values, i * columns, this.values, (size - 1) * columns, columns);
+        }
+    }
+
+    /**
+     * @return 位置 [from, to) 各元素的词法单元
+     */
+    Token[] tokens(int from, int to) {
+        return Arrays.copyOfRange(tokens, from, to);
+    }
+
+    /**
+     * @return 位置 [from, to) 各元素按行存放的属性
+     */
+    Object[] values(int from, int to) {
+        return Arrays.copyOfRange(values, from * columns, to * columns);
+    }
+
+    Token token(int position) {
+        return tokens[position];
+    }
+
+    Object value(int position, int column) {
+        return values[position * columns + column];
+    }
+
+    /**
+     * 创建某一列在产生式体范围内的只读视图, 观察者在 whenReduce 中以 {@link Attributes#reset(Production)}
+     * 定位到被规约的产生式后读取各符号的词法单元与属性. 视图可以在各次规约之间复用.
+     *
+     * @param column 属性列
+     * @param <V>    该列属性值的类型
+     * @return 视图
+     */
+    public <V> Attributes<V> view(int column) {
+        return new Attributes<>(this, column);
+    }
+
+    /**
+     * 写入正在规约的产生式头在某一列的属性, 产生式体出栈后生效
+     *
+     * @param column 属性列
+     * @param value  属性值
+     */
+    public void setHead(int column, Object value) {
+        heads[column] = value;
+    }
+
+    private void push(Token token) {
+        if (size == tokens.length) {
+            tokens = Arrays.copyOf(tokens, size * 2);
+            values = Arrays.copyOf(values, size * 2 * columns);
+        }
+        tokens[size] = token;
+        Arrays.fill(values, size * columns, (size + 1) * columns, null);
+        size++;
+    }
+}
@@ -0,0 +1,64 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.parser.table.Production;
+
+/**
+ * 规约时产生式体各符号的属性, 是 {@link AttributeStack} 中某一列在当前产生式体范围内的视图
+ * <br>
+ * 由 {@link AttributeStack#view(int)} 创建. 同一个视图对象在每次规约时复用, 处理函数不应在返回后继续持有它.
+ *
+ * @param <V> 属性值的类型
+ */
+public final class Attributes<V> {
+    private final AttributeStack stack;
+    private final int column;
+    private Production production = null;
+    private int base = 0;
+
+    Attributes(AttributeStack stack, int column) {
+        this.stack = stack;
+        this.column = column;
+    }
+
+    /**
+     * 定位到即将规约的产生式体, 应在 {@link ActionObserver#whenReduce} 中, 读取属性之前调用
+     *
+     * @param production 被规约的产生式
+     */
+    public void reset(Production production) {
+        this.production = production;
+        this.base = stack.frameBase(production.body().size());
+    }
+
+    /**
+     * @return 被规约的产生式
+     */
+    public Production production() {
+        return production;
+    }
+
+    /**
+     * @return 产生式体长度
+     */
+    public int size() {
+        return production.body().size();
+    }
+
+    /**
+     * @param index 符号在产生式体中的位置, 从 0 开始
+     * @return 该符号移入时的词法单元, 非终结符为 null
+     */
+    public Token token(int index) {
+        return stack.token(base + index);
+    }
+
+    /**
+     * @param index 符号在产生式体中的位置, 从 0 开始
+     * @return 该符号的属性
+     */
+    @SuppressWarnings("unchecked")
+    public V value(int index) {
+        return (V) stack.value(base + index, column);
+    }
+}
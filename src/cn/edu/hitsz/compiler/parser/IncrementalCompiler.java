@@ -0,0 +1,500 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.ir.IRBuilder;
+import cn.edu.hitsz.compiler.ir.Instruction;
+import cn.edu.hitsz.compiler.lexer.LexicalAnalyzer;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.lexer.TokenStream;
+import cn.edu.hitsz.compiler.parser.table.CompiledLRTable;
+import cn.edu.hitsz.compiler.parser.table.Grammar;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.LRTable;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 增量编译: 源代码被编辑后, 只重新分析受影响的语句
+ * <br>
+ * 源代码按 Semicolon 切分为语句, 每条语句覆盖上一个分号之后 (含前导空白) 直到自己的分号为止的文本, 最后一条语句不以分号结尾, 可以为空.
+ * 每条语句保存它的文本, 词法单元, 开始分析时的栈顶状态 (入口状态), 以 {@link SyntaxAnalyzer#runSegment(int)} 分析后留在入口状态以上的分析栈,
+ * 以及分析过程中规约的产生式, 生成的 IR 与声明的符号. 源代码就是各语句文本的拼接, 语句分块存放 ({@link StatementList}),
+ * 按位置查找语句与替换语句都不涉及其余的语句. 每次编辑:
+ * <ol>
+ *     <li>只对被修改的语句重新做词法分析, 区域不以分号结尾时 (例如删去了分号) 向后扩展一条语句;</li>
+ *     <li>撤销旧语句声明的类型, 从前一条语句的出口状态开始逐条分析新的语句;</li>
+ *     <li>遇到入口状态不变的旧语句即停止: 其分析结果只取决于入口状态与自身的词法单元, 出口状态也不变, 其后的语句同理.
+ *     先前出错的语句可能因符号表的变化而不再出错, 另外各重新分析一次.</li>
+ * </ol>
+ * 取结果时读入 EOF 完成其余的规约. 这一步从最后一条语句起逐条向前进行: 每条语句将自己剩下的分析栈与其后各语句留下的部分接起来,
+ * 规约到需要弹出入口状态为止 ({@link SyntaxAnalyzer#runSegment(int, List)}), 再把剩下的部分交给前一条语句.
+ * 每条语句缓存这一步的输入与结果, 只有自身被重新分析或其后留下的部分改变时才重新计算.
+ * 示例文法中 S_list 是右递归的, 每条语句留下的都是同一个 S_list, 因此一次编辑只需重新计算被修改的语句.
+ * 产生式与 IR 以拼接各语句结果的视图返回, 不复制.
+ * <br>
+ * 若某条语句的分析要弹出其入口状态, 说明文法不允许它脱离前一条语句单独分析, 此时将它与前一条语句合并后重新分析.
+ * 结果与重新编译整个文件相同, 只是复用的语句保留先前生成的临时变量名, 且被删去的标识符仍留在符号表中.
+ */
+public class IncrementalCompiler {
+    // 最后一条语句之后没有任何剩余的分析栈
+    private static final SyntaxAnalyzer.Residual EMPTY =
+        new SyntaxAnalyzer.Residual(SyntaxAnalyzer.Outcome.EXHAUSTED, new int[0], new Token[0], new Object[0]);
+
+    private final Grammar grammar;
+    private final SymbolTable symbolTable;
+    private final CompiledLRTable table;
+    private final TokenKind semicolon;
+
+    // 各语句共用的命名上下文, 重新分析的语句得到新的临时变量, 不会与复用的语句冲突
+    private final IRBuilder irBuilder = new IRBuilder();
+
+    private final StatementList statements = new StatementList();
+    // 出错的语句
+    private final Set<Statement> failed = new HashSet<>();
+    // 编辑的次数, 用于判断语句在本次编辑中是否已经分析过
+    private int generation = 0;
+
+    // 上一次编辑重新做词法分析的字符数与重新分析的语句数
+    private int relexedLength = 0;
+    private int reparsedStatements = 0;
+
+    // 读入 EOF 之后的结果, 编辑后在第一次取结果时计算
+    private boolean finished = false;
+    private boolean accepted = false;
+
+    /**
+     * 一条语句及其分析结果
+     */
+    static final class Statement {
+        final String text;
+        final Token[] tokens;
+        // 标识符的符号编号
+        final int[] symbolIds;
+        // 所在的块, 被移除后为 null
+        StatementList.Block block = null;
+
+        int entryStatus = -1;
+        SyntaxAnalyzer.Residual residual = null;
+        List<Production> productions = List.of();
+        List<Instruction> ir = List.of();
+        // 该语句为之设置了类型的符号
+        int[] declared = new int[0];
+        String error = null;
+        // 最近一次分析时的编辑次数
+        int parsedIn = -1;
+
+        // EOF 阶段: 以本语句剩下的分析栈接上其后各语句留下的部分 (eofAbove) 规约, collapsed 为交给前一条语句的部分,
+        // 为 null 表示分析已在此结束 (接受或出错), 之前各语句的 EOF 阶段什么也不做
+        boolean eofValid = false;
+        SyntaxAnalyzer.Residual eofAbove = null;
+        SyntaxAnalyzer.Residual collapsed = null;
+        SyntaxAnalyzer.Outcome eofOutcome = null;
+        List<Production> eofProductions = List.of();
+        List<Instruction> eofIR = List.of();
+
+        Statement(String text, Token[] tokens, int[] symbolIds) {
+            this.text = text;
+            this.tokens = tokens;
+            this.symbolIds = symbolIds;
+        }
+
+        int exitStatus() {
+            // 出错的语句视为不存在, 后面的语句从其入口状态继续
+            final var statuses = residual == null || error != null ? null : residual.statuses();
+            return statuses == null || statuses.length == 0 ? entryStatus : statuses[statuses.length - 1];
+        }
+    }
+
+    /**
+     * @param table       LR 分析表
+     * @param symbolTable 符号表, 应当是空的
+     */
+    public IncrementalCompiler(LRTable table, SymbolTable symbolTable) {
+        this(GrammarInfo.standard(), table, symbolTable);
+    }
+
+    /**
+     * @param grammar     文法
+     * @param table       该文法的 LR 分析表
+     * @param symbolTable 符号表, 应当是空的
+     */
+    public IncrementalCompiler(Grammar grammar, LRTable table, SymbolTable symbolTable) {
+        this.grammar = grammar;
+        this.table = table.compile();
+        this.symbolTable = symbolTable;
+        this.semicolon = grammar.getTokenKinds().fromString("Semicolon");
+        statements.replace(0, 0, List.of(new Statement("", new Token[0], new int[0])));
+    }
+
+    /**
+     * 以新的源代码替换全部内容, 相当于对整个文件的一次编辑
+     *
+     * @param source 源代码
+     */
+    public void load(String source) {
+        edit(0, statements.length(), source);
+    }
+
+    /**
+     * 将源代码中 [offset, offset + removedLength) 替换为 inserted, 并重新分析受影响的语句
+     *
+     * @param offset        编辑开始的位置
+     * @param removedLength 删去的字符数
+     * @param inserted      插入的文本
+     * @throws RuntimeException 编辑范围越界, 或新的文本中有词法错误; 此时不改变任何状态
+     */
+    public void edit(int offset, int removedLength, String inserted) {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > statements.length()) {
+            throw new RuntimeException("Edit [%d, %d) is out of range".formatted(offset, offset + removedLength));
+        }
+
+        // 受影响的旧语句 [first, last] 的文本, 其中被编辑的部分替换为新的文本
+        final var first = statements.indexAt(offset);
+        var last = removedLength == 0 ? first : statements.indexAt(offset + removedLength - 1);
+        final var regionStart = statements.startOf(first);
+        final var text = new StringBuilder();
+        for (int i = first; i <= last; i++) {
+            text.append(statements.get(i).text);
+        }
+        text.replace(offset - regionStart, offset - regionStart + removedLength, inserted);
+
+        // 先做词法分析; 出错时撤销其间加入符号表的标识符, 不改变任何状态
+        final var mark = symbolTable.mark();
+        String region;
+        TokenStream stream;
+        try {
+            while (true) {
+                region = text.toString();
+                stream = LexicalAnalyzer.tokenize(region, symbolTable, grammar.getTokenKinds());
+                if (last == statements.size() - 1 || endsWithSemicolon(stream, region.length())) {
+                    break;
+                }
+                last++;
+                text.append(statements.get(last).text);
+            }
+        } catch (RuntimeException e) {
+            symbolTable.rollback(mark);
+            throw e;
+        }
+
+        final var pieces = split(stream, region, last == statements.size() - 1);
+        for (final var statement : statements.replace(first, last + 1, pieces)) {
+            undo(statement);
+            failed.remove(statement);
+        }
+        relexedLength = region.length();
+
+        reparse(first, first + pieces.size());
+        finished = false;
+    }
+
+    /**
+     * 重新分析新的语句 [first, freshEnd), 以及之后入口状态因此改变的语句, 再重新分析先前出错的语句
+     */
+    private void reparse(int first, int freshEnd) {
+        generation++;
+        reparsedStatements = 0;
+        reparseFrom(first, freshEnd);
+        for (final var statement : new ArrayList<>(failed)) {
+            if (statement.block != null && statement.parsedIn != generation) {
+                final var index = statements.indexOf(statement);
+                reparseFrom(index, index + 1);
+            }
+        }
+    }
+
+    /**
+     * 从第 first 条语句开始重新分析: [first, freshEnd) 一定要分析, 之后遇到入口状态不变的语句即停止
+     */
+    private void reparseFrom(int first, int freshEnd) {
+        var entry = first == 0 ? table.initStatus() : statements.get(first - 1).exitStatus();
+        for (int i = first; i < statements.size(); i++) {
+            var statement = statements.get(i);
+            if (i >= freshEnd && statement.entryStatus == entry) {
+                break;
+            }
+
+            undo(statement);
+            parse(statement, entry);
+            reparsedStatements++;
+            while (statement.residual != null && statement.residual.outcome() == SyntaxAnalyzer.Outcome.UNDERFLOW) {
+                // 不能单独分析, 与前一条语句合并; 第一条语句从初始状态开始, 不会出现这种情况
+                final var previous = statements.get(i - 1);
+                undo(previous);
+                final var merged = merge(previous, statement);
+                for (final var old : statements.replace(i - 1, i + 1, List.of(merged))) {
+                    failed.remove(old);
+                }
+                i--;
+                freshEnd--;
+                parse(merged, previous.entryStatus);
+                statement = merged;
+                reparsedStatements++;
+            }
+            entry = statement.exitStatus();
+        }
+    }
+
+    /**
+     * 以 entryStatus 为入口状态分析一条语句, 记录其结果
+     */
+    private void parse(Statement statement, int entryStatus) {
+        final var untyped = new ArrayList<Integer>();
+        for (final var id : statement.symbolIds) {
+            if (symbolTable.get(id).getType() == null) {
+                untyped.add(id);
+            }
+        }
+
+        final var parser = new SyntaxAnalyzer(symbolTable);
+        final var passes = new SemanticPasses(grammar, EnumSet.allOf(SemanticPasses.Pass.class),
+            new ProductionCollector(grammar), irBuilder);
+        parser.registerObserver(passes);
+        parser.loadTokens(Arrays.asList(statement.tokens));
+        parser.loadLRTable(table);
+
+        statement.entryStatus = entryStatus;
+        statement.error = null;
+        try {
+            statement.residual = parser.runSegment(entryStatus);
+            if (statement.residual.outcome() == SyntaxAnalyzer.Outcome.ERROR) {
+                statement.error = "Syntax error";
+            }
+        } catch (RuntimeException e) {
+            statement.residual = null;
+            statement.error = e.getMessage();
+        }
+        statement.productions = passes.getProductionCollector().getProductions();
+        statement.ir = passes.getIR();
+        statement.declared = untyped.stream()
+            .filter(id -> symbolTable.get(id).getType() != null)
+            .mapToInt(Integer::intValue)
+            .distinct()
+            .toArray();
+        statement.parsedIn = generation;
+        statement.eofValid = false;
+        if (statement.error != null) {
+            failed.add(statement);
+        } else {
+            failed.remove(statement);
+        }
+        statements.changed(statement);
+    }
+
+    /**
+     * 撤销语句声明的类型
+     */
+    private void undo(Statement statement) {
+        for (final var id : statement.declared) {
+            symbolTable.get(id).clearType();
+        }
+        statement.declared = new int[0];
+    }
+
+    private static Statement merge(Statement previous, Statement next) {
+        final var tokens = Arrays.copyOf(previous.tokens, previous.tokens.length + next.tokens.length);
+        System.arraycopy(next.tokens, 0, tokens, previous.tokens.length, next.tokens.length);
+        final var ids = Arrays.copyOf(previous.symbolIds, previous.symbolIds.length + next.symbolIds.length);
+        System.arraycopy(next.symbolIds, 0, ids, previous.symbolIds.length, next.symbolIds.length);
+        return new Statement(previous.text + next.text, tokens, ids);
+    }
+
+    private boolean endsWithSemicolon(TokenStream stream, int length) {
+        // 末尾是 EOF
+        final var last = stream.size() - 2;
+        return last >= 0 && stream.getKind(last) == semicolon
+            && stream.getOffset(last) + stream.getLength(last) == length;
+    }
+
+    /**
+     * 将重新做词法分析的区域按分号切分为语句
+     *
+     * @param atEnd 区域是否延伸到源代码末尾, 是则最后总有一条不以分号结尾的语句
+     */
+    private List<Statement> split(TokenStream stream, String region, boolean atEnd) {
+        final var pieces = new ArrayList<Statement>();
+        final var tokens = new ArrayList<Token>();
+        final var ids = new ArrayList<Integer>();
+        var pieceStart = 0;
+        for (int i = 0; i < stream.size() - 1; i++) {
+            tokens.add(stream.getToken(i));
+            if (stream.getSymbolId(i) >= 0) {
+                ids.add(stream.getSymbolId(i));
+            }
+            if (stream.getKind(i) == semicolon) {
+                final var pieceEnd = stream.getOffset(i) + stream.getLength(i);
+                pieces.add(new Statement(region.substring(pieceStart, pieceEnd),
+                    tokens.toArray(new Token[0]), ids.stream().mapToInt(Integer::intValue).toArray()));
+                tokens.clear();
+                ids.clear();
+                pieceStart = pieceEnd;
+            }
+        }
+        if (atEnd) {
+            pieces.add(new Statement(region.substring(pieceStart),
+                tokens.toArray(new Token[0]), ids.stream().mapToInt(Integer::intValue).toArray()));
+        }
+        return pieces;
+    }
+
+    /**
+     * 从最后一条语句起向前完成 EOF 阶段, 跳过输入不变的语句
+     */
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        accepted = false;
+        if (!failed.isEmpty()) {
+            return;
+        }
+
+        var i = statements.lastEofInvalid(statements.size());
+        while (i >= 0) {
+            final var statement = statements.get(i);
+            final var above = i == statements.size() - 1 ? EMPTY : statements.get(i + 1).collapsed;
+            if (statement.eofValid && sameStack(statement.eofAbove, above)) {
+                // 输入不变, 结果也不变; 其前的语句只要自身未被重新分析, 输入也不变
+                i = statements.lastEofInvalid(i);
+                continue;
+            }
+            finish(statement, above);
+            i--;
+        }
+        accepted = statements.get(0).eofOutcome == SyntaxAnalyzer.Outcome.ACCEPTED;
+    }
+
+    /**
+     * 一条语句的 EOF 阶段: 在入口状态上接起本语句剩下的分析栈与 above, 读入 EOF 规约到需要弹出入口状态为止
+     */
+    private void finish(Statement statement, SyntaxAnalyzer.Residual above) {
+        statement.eofValid = true;
+        statement.eofAbove = above;
+        statement.collapsed = null;
+        statement.eofOutcome = SyntaxAnalyzer.Outcome.ERROR;
+        statement.eofProductions = List.of();
+        statement.eofIR = List.of();
+        statements.changed(statement);
+        if (above == null) {
+            return;
+        }
+
+        final var parser = new SyntaxAnalyzer(symbolTable);
+        final var passes = new SemanticPasses(grammar, EnumSet.allOf(SemanticPasses.Pass.class),
+            new ProductionCollector(grammar), irBuilder);
+        parser.registerObserver(passes);
+        parser.loadTokens(List.of(Token.eof()));
+        parser.loadLRTable(table);
+        try {
+            final var residual = parser.runSegment(statement.entryStatus, List.of(statement.residual, above));
+            statement.eofOutcome = residual.outcome();
+            // 接受或出错时分析在此结束, 只有需要弹出入口状态时才由前一条语句继续
+            statement.collapsed = residual.outcome() == SyntaxAnalyzer.Outcome.UNDERFLOW ? residual : null;
+        } catch (RuntimeException e) {
+            statement.eofOutcome = SyntaxAnalyzer.Outcome.ERROR;
+        }
+        statement.eofProductions = passes.getProductionCollector().getProductions();
+        statement.eofIR = passes.getIR();
+    }
+
+    private static boolean sameStack(SyntaxAnalyzer.Residual a, SyntaxAnalyzer.Residual b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        return Arrays.equals(a.statuses(), b.statuses()) && Arrays.equals(a.tokens(), b.tokens())
+            && Arrays.equals(a.values(), b.values());
+    }
+
+    /**
+     * @return 当前的源代码, 由各语句的文本拼接而成
+     */
+    public String getSource() {
+        final var source = new StringBuilder();
+        for (final var statement : statements) {
+            source.append(statement.text);
+        }
+        return source.toString();
+    }
+
+    /**
+     * @return 源代码是否为合法的程序
+     */
+    public boolean isAccepted() {
+        finish();
+        return accepted;
+    }
+
+    /**
+     * @return 各出错语句的错误信息, 按语句顺序, 形如 "statement 3: Syntax error"
+     */
+    public List<String> getErrors() {
+        final var errors = new TreeMap<Integer, String>();
+        for (final var statement : failed) {
+            errors.put(statements.indexOf(statement), statement.error);
+        }
+        final var lines = new ArrayList<String>();
+        errors.forEach((index, error) -> lines.add("statement %d: %s".formatted(index, error)));
+        return lines;
+    }
+
+    /**
+     * @return 全部词法单元, 末尾为 EOF
+     */
+    public List<Token> getTokens() {
+        final var tokens = new ArrayList<Token>();
+        for (final var statement : statements) {
+            tokens.addAll(Arrays.asList(statement.tokens));
+        }
+        tokens.add(Token.eof());
+        return tokens;
+    }
+
+    /**
+     * @return 按规约顺序排列的产生式, 与 {@link ProductionCollector} 的结果相同; 是各语句结果的视图, 在下一次编辑之前有效
+     */
+    public List<Production> getProductions() {
+        finish();
+        return statements.concat(StatementList.PRODUCTIONS, failed.isEmpty());
+    }
+
+    /**
+     * @return 生成的 IR; 是各语句结果的视图, 在下一次编辑之前有效
+     */
+    public List<Instruction> getIR() {
+        finish();
+        return statements.concat(StatementList.IR, failed.isEmpty());
+    }
+
+    /**
+     * @return 上一次编辑重新做词法分析的字符数
+     */
+    public int getRelexedLength() {
+        return relexedLength;
+    }
+
+    /**
+     * @return 上一次编辑重新分析的语句数
+     */
+    public int getReparsedStatements() {
+        return reparsedStatements;
+    }
+
+    /**
+     * @return 语句数, 包括最后一条不以分号结尾的语句
+     */
+    public int getStatementCount() {
+        return statements.size();
+    }
+}
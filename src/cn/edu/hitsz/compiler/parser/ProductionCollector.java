@@ -1,12 +1,17 @@
 package cn.edu.hitsz.compiler.parser;
 
 import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.parser.table.Grammar;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
 import cn.edu.hitsz.compiler.parser.table.Production;
 import cn.edu.hitsz.compiler.parser.table.Status;
 import cn.edu.hitsz.compiler.symtab.SymbolTable;
 import cn.edu.hitsz.compiler.utils.FileUtils;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -14,28 +19,168 @@ import java.util.List;
  * <br>
  * 该类将自己注册为 LR 驱动程序的动作观察者, 在每次 reduce 将规约的产生式存起来, 待到语法分析结束之后便能按规约顺序输出所有规约到产生式.
  * 该类的输出结果会被作为判断实验二代码正误的根据.
+ * <br>
+ * 除了在内存中保存全部规约序列 ({@link Mode#RECORD}) 以外, 还可以在规约时直接写入文件 ({@link Mode#STREAM}),
+ * 或只统计各产生式的规约次数 ({@link Mode#COUNT}), 后两种模式占用的内存与输入的长度无关.
  */
 public class ProductionCollector implements ActionObserver {
+    /**
+     * 收集方式
+     */
+    public enum Mode {
+        /**
+         * 在内存中保存全部规约序列, 分析结束后由 {@link #dumpToFile(String)} 输出
+         */
+        RECORD,
+        /**
+         * 规约时即经由带缓冲的 writer 写入文件, 接受时写完并关闭
+         */
+        STREAM,
+        /**
+         * 只统计各产生式的规约次数, 用于分析性能
+         */
+        COUNT,
+    }
+
     public ProductionCollector(Production beginProduction) {
+        this(GrammarInfo.standard(), beginProduction, Mode.RECORD, null);
+    }
+
+    /**
+     * @param grammar 文法, 以其起始产生式作为接受时记录的产生式
+     */
+    public ProductionCollector(Grammar grammar) {
+        this(grammar, grammar.getBeginProduction(), Mode.RECORD, null);
+    }
+
+    private ProductionCollector(Grammar grammar, Production beginProduction, Mode mode, BufferedWriter writer) {
+        this.grammar = grammar;
         this.beginProduction = beginProduction;
+        this.mode = mode;
+        this.writer = writer;
+        this.reducedProductions = mode == Mode.RECORD ? new ArrayList<>() : null;
+        this.counts = mode == Mode.COUNT ? new long[grammar.maxProductionIndex() + 1] : null;
+        if (mode == Mode.STREAM) {
+            // Production.toString 每次都要拼接字符串, 预先为每条产生式算好
+            this.texts = new String[grammar.maxProductionIndex() + 1];
+            for (final var production : grammar.getProductionsInOrder()) {
+                texts[production.index()] = production.toString();
+            }
+        } else {
+            this.texts = null;
+        }
     }
 
+    /**
+     * @param beginProduction 起始产生式
+     * @param path            输出文件路径, 内容与 RECORD 模式下 {@link #dumpToFile(String)} 的输出相同
+     * @return 规约时直接写入文件的收集器
+     */
+    public static ProductionCollector streaming(Production beginProduction, String path) {
+        return streaming(GrammarInfo.standard(), beginProduction, path);
+    }
+
+    /**
+     * @param grammar 文法, 以其起始产生式作为接受时记录的产生式
+     * @param path    输出文件路径, 内容与 RECORD 模式下 {@link #dumpToFile(String)} 的输出相同
+     * @return 规约时直接写入文件的收集器
+     */
+    public static ProductionCollector streaming(Grammar grammar, String path) {
+        return streaming(grammar, grammar.getBeginProduction(), path);
+    }
+
+    private static ProductionCollector streaming(Grammar grammar, Production beginProduction, String path) {
+        return new ProductionCollector(grammar, beginProduction, Mode.STREAM, FileUtils.openWriter(path));
+    }
+
+    /**
+     * @param beginProduction 起始产生式
+     * @return 只统计各产生式规约次数的收集器
+     */
+    public static ProductionCollector counting(Production beginProduction) {
+        return counting(GrammarInfo.standard(), beginProduction);
+    }
+
+    /**
+     * @param grammar 文法, 以其起始产生式作为接受时记录的产生式
+     * @return 只统计各产生式规约次数的收集器
+     */
+    public static ProductionCollector counting(Grammar grammar) {
+        return counting(grammar, grammar.getBeginProduction());
+    }
+
+    private static ProductionCollector counting(Grammar grammar, Production beginProduction) {
+        return new ProductionCollector(grammar, beginProduction, Mode.COUNT, null);
+    }
+
+    private final Grammar grammar;
     private final Production beginProduction;
-    private final List<Production> reducedProductions = new ArrayList<>();
+    private final Mode mode;
+    private final List<Production> reducedProductions;
+    private final BufferedWriter writer;
+    private final String[] texts;
+    // 以产生式编号为下标的规约次数
+    private final long[] counts;
 
     /**
-     * 将结果输出到文件
+     * 将结果输出到文件. RECORD 模式下按规约顺序每行一个产生式, COUNT 模式下按产生式编号每行一个 "次数 产生式".
+     * STREAM 模式的结果已经在分析过程中写入, 不能再输出到其它文件.
      *
      * @param path 文件路径
      */
     public void dumpToFile(String path) {
-        FileUtils.writeLines(path, reducedProductions.stream().map(Production::toString).toList());
+        switch (mode) {
+            case RECORD -> FileUtils.writeLines(path, reducedProductions.stream().map(Production::toString).toList());
+            case COUNT -> {
+                final var lines = new ArrayList<String>();
+                for (final var production : grammar.getProductionsInOrder()) {
+                    lines.add("%d %s".formatted(counts[production.index()], production));
+                }
+                FileUtils.writeLines(path, lines);
+            }
+            case STREAM -> throw new RuntimeException("Productions are streamed while parsing, can NOT dump them again");
+        }
+    }
+
+    /**
+     * @return 按规约顺序排列的产生式, 仅 RECORD 模式可用
+     */
+    public List<Production> getProductions() {
+        if (mode != Mode.RECORD) {
+            throw new RuntimeException("Productions are only kept in RECORD mode");
+        }
+        return Collections.unmodifiableList(reducedProductions);
+    }
+
+    /**
+     * @param production 产生式
+     * @return 该产生式被规约的次数, 仅 COUNT 模式可用
+     */
+    public long getCount(Production production) {
+        if (mode != Mode.COUNT) {
+            throw new RuntimeException("Counts are only kept in COUNT mode");
+        }
+        return counts[production.index()];
+    }
+
+    /**
+     * 关闭 STREAM 模式下的输出文件, 分析正常结束时会自动关闭, 分析出错时应手动调用. 其它模式下什么也不做.
+     */
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on closing production stream", e);
+        }
     }
 
     @Override
     public void whenReduce(Status currentStatus, Production production) {
         // 当规约时, 记录规约到的产生式
-        reducedProductions.add(production);
+        record(production);
     }
 
     @Override
@@ -46,11 +191,27 @@ public class ProductionCollector implements ActionObserver {
     @Override
     public void whenAccept(Status currentStatus) {
         // 当接受时, 记录下对起始产生式的规约
-        reducedProductions.add(beginProduction);
+        record(beginProduction);
+        close();
     }
 
     @Override
     public void setSymbolTable(SymbolTable table) {
         // do nothing
     }
+
+    private void record(Production production) {
+        switch (mode) {
+            case RECORD -> reducedProductions.add(production);
+            case COUNT -> counts[production.index()]++;
+            case STREAM -> {
+                try {
+                    writer.write(texts[production.index()]);
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new RuntimeException("IO Exception on streaming productions", e);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.parser.table.Grammar;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+
+import java.util.Arrays;
+
+/**
+ * 语义动作表: 启动时按产生式文本为每条产生式绑定一个规约处理函数, 规约时以产生式编号直接索引数组分派
+ * <br>
+ * 与在 whenReduce 中对 {@code production.index()} 写 switch 相比, 处理函数与产生式的对应关系由产生式文本给出,
+ * 不再依赖产生式在 grammar.txt 中的行号; 文本在绑定时即被解析, 写错的产生式会在启动时报错.
+ * 没有绑定处理函数的产生式使用默认处理函数.
+ *
+ * @param <V> 属性值的类型
+ */
+public final class SemanticActions<V> {
+    /**
+     * 规约处理函数
+     *
+     * @param <V> 属性值的类型
+     */
+    @FunctionalInterface
+    public interface Handler<V> {
+        /**
+         * @param body 产生式体各符号的属性
+         * @return 产生式头的综合属性
+         */
+        V reduce(Attributes<V> body);
+    }
+
+    private final Grammar grammar;
+    private final Handler<V>[] handlers;
+    // 以产生式编号为下标: 是否绑定了处理函数 (而非使用默认处理函数)
+    private final boolean[] bound;
+
+    /**
+     * @param fallback 未绑定的产生式使用的处理函数
+     */
+    public SemanticActions(Handler<V> fallback) {
+        this(GrammarInfo.standard(), fallback);
+    }
+
+    /**
+     * @param grammar  产生式文本在该文法中查找
+     * @param fallback 未绑定的产生式使用的处理函数
+     */
+    public SemanticActions(Grammar grammar, Handler<V> fallback) {
+        this.grammar = grammar;
+        final var maxIndex = grammar.maxProductionIndex();
+        // 无法直接创建泛型数组, 只能创建原始类型的数组; 数组不会泄露到类外, 且只存放 Handler<V>, 因此转换是安全的
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final Handler<V>[] handlers = new Handler[maxIndex + 1];
+        this.handlers = handlers;
+        this.bound = new boolean[maxIndex + 1];
+        Arrays.fill(handlers, fallback);
+    }
+
+    /**
+     * 为产生式绑定处理函数
+     *
+     * @param text    产生式文本, 形如 {@code S -> id = E}
+     * @param handler 处理函数
+     * @return this
+     * @throws RuntimeException 文法中没有该产生式
+     */
+    public SemanticActions<V> on(String text, Handler<V> handler) {
+        final var index = grammar.getProductionByText(text).index();
+        handlers[index] = handler;
+        bound[index] = true;
+        return this;
+    }
+
+    /**
+     * @param productionIndex 产生式编号
+     * @return 该产生式的处理函数
+     */
+    Handler<V> get(int productionIndex) {
+        return handlers[productionIndex];
+    }
+
+    /**
+     * @param productionIndex 产生式编号
+     * @return 是否为该产生式绑定了处理函数 (而非使用默认处理函数)
+     */
+    boolean isBound(int productionIndex) {
+        return bound[productionIndex];
+    }
+}
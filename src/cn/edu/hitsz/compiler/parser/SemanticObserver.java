@@ -0,0 +1,72 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+
+/**
+ * 以 {@link SemanticActions} 分派规约动作的观察者
+ * <br>
+ * 子类在构造时调用 {@link #bind(SemanticActions)} 绑定各产生式的处理函数, 此后每次规约只需按产生式编号取出处理函数调用.
+ * 产生式体各符号的词法单元与属性保存在驱动程序的 {@link AttributeStack} 中属于本观察者的一列,
+ * 处理函数的返回值即产生式头的属性, 子类不再需要自己的符号栈与属性栈.
+ *
+ * @param <V> 属性值的类型
+ */
+public abstract class SemanticObserver<V> implements ActionObserver {
+    protected SymbolTable symbolTable = null;
+
+    private SemanticActions<V> actions = null;
+    private AttributeStack stack = null;
+    private int column = 0;
+    private Attributes<V> body = null;
+
+    /**
+     * 绑定语义动作表, 应在子类的构造函数中调用
+     *
+     * @param actions 语义动作表
+     */
+    protected final void bind(SemanticActions<V> actions) {
+        this.actions = actions;
+    }
+
+    /**
+     * @return 绑定的语义动作表
+     */
+    SemanticActions<V> actions() {
+        return actions;
+    }
+
+    @Override
+    public boolean usesAttributes() {
+        return true;
+    }
+
+    @Override
+    public void attachAttributes(AttributeStack stack, int column) {
+        this.stack = stack;
+        this.column = column;
+        this.body = stack.view(column);
+    }
+
+    @Override
+    public void whenShift(Status currentStatus, Token currentToken) {
+        // 词法单元由驱动程序压入属性栈
+    }
+
+    @Override
+    public void whenReduce(Status currentStatus, Production production) {
+        body.reset(production);
+        stack.setHead(column, actions.get(production.index()).reduce(body));
+    }
+
+    @Override
+    public void whenAccept(Status currentStatus) {
+    }
+
+    @Override
+    public void setSymbolTable(SymbolTable table) {
+        this.symbolTable = table;
+    }
+}
@@ -0,0 +1,192 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.ir.IRBuilder;
+import cn.edu.hitsz.compiler.ir.Instruction;
+import cn.edu.hitsz.compiler.lexer.Token;
+import cn.edu.hitsz.compiler.parser.table.Grammar;
+import cn.edu.hitsz.compiler.parser.table.GrammarInfo;
+import cn.edu.hitsz.compiler.parser.table.Production;
+import cn.edu.hitsz.compiler.parser.table.Status;
+import cn.edu.hitsz.compiler.symtab.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 将规约产生式的收集, 语义分析与 IR 生成合并为一个观察者
+ * <br>
+ * 分别注册 {@link ProductionCollector}, {@link SemanticAnalyzer} 与 {@link IRGenerator} 时, 驱动程序每次规约要逐个调用三个观察者.
+ * 这里驱动程序只调用一次本观察者, 各遍共用属性栈中的同一行, 每个启用的遍占其中一列, 各自的属性互不干扰.
+ * 构造时按产生式编号预先算出为其绑定了处理函数的各遍, 例如 {@code S -> D id} 的类型赋值与 IR 生成在同一次调用中完成,
+ * 而没有任何一遍绑定处理函数的产生式规约时什么也不做. 没有启用的遍不占用属性列, 也就没有任何开销.
+ */
+public class SemanticPasses implements ActionObserver {
+    /**
+     * 可以启用的各遍
+     */
+    public enum Pass {
+        /**
+         * 收集规约的产生式, 同 {@link ProductionCollector}
+         */
+        PRODUCTIONS,
+        /**
+         * 语义分析, 同 {@link SemanticAnalyzer}
+         */
+        TYPES,
+        /**
+         * IR 生成, 同 {@link IRGenerator}
+         */
+        IR,
+    }
+
+    private final ProductionCollector productionCollector;
+    private final SemanticAnalyzer semanticAnalyzer;
+    private final IRGenerator irGenerator;
+    // 启用的各遍, 依次占用属性栈中的各列
+    private final List<SemanticObserver<?>> enabled = new ArrayList<>();
+    // 以产生式编号为下标: 为该产生式绑定了处理函数的各遍
+    private final SemanticObserver<?>[][] dispatch;
+    // 驱动程序是否已接受输入
+    private boolean accepted = false;
+
+    /**
+     * @param passes 启用的各遍, 其中 {@link Pass#PRODUCTIONS} 在内存中保存全部规约序列
+     */
+    public SemanticPasses(Set<Pass> passes) {
+        this(passes, new ProductionCollector(GrammarInfo.getBeginProduction()));
+    }
+
+    /**
+     * @param passes              启用的各遍
+     * @param productionCollector {@link Pass#PRODUCTIONS} 使用的收集器, 可以是流式或计数模式
+     */
+    public SemanticPasses(Set<Pass> passes, ProductionCollector productionCollector) {
+        this(GrammarInfo.standard(), passes, productionCollector, new IRBuilder());
+    }
+
+    /**
+     * 为给定的文法启用全部的遍, {@link Pass#PRODUCTIONS} 在内存中保存全部规约序列
+     *
+     * @param grammar 文法
+     */
+    public SemanticPasses(Grammar grammar) {
+        this(grammar, EnumSet.allOf(Pass.class), new ProductionCollector(grammar), new IRBuilder());
+    }
+
+    /**
+     * @param grammar             各遍的处理函数按产生式文本绑定到该文法的产生式
+     * @param passes              启用的各遍
+     * @param productionCollector {@link Pass#PRODUCTIONS} 使用的收集器
+     * @param irBuilder           {@link Pass#IR} 分配临时变量的命名上下文
+     */
+    public SemanticPasses(Grammar grammar, Set<Pass> passes, ProductionCollector productionCollector,
+                          IRBuilder irBuilder) {
+        this.productionCollector = passes.contains(Pass.PRODUCTIONS) ? productionCollector : null;
+        this.semanticAnalyzer = new SemanticAnalyzer(grammar);
+        this.irGenerator = new IRGenerator(grammar, irBuilder);
+
+        if (passes.contains(Pass.TYPES)) {
+            enabled.add(semanticAnalyzer);
+        }
+        if (passes.contains(Pass.IR)) {
+            enabled.add(irGenerator);
+        }
+        this.dispatch = new SemanticObserver<?>[grammar.maxProductionIndex() + 1][];
+        for (int index = 0; index < dispatch.length; index++) {
+            final var bound = new ArrayList<SemanticObserver<?>>();
+            for (final var pass : enabled) {
+                if (pass.actions().isBound(index)) {
+                    bound.add(pass);
+                }
+            }
+            dispatch[index] = bound.toArray(new SemanticObserver<?>[0]);
+        }
+    }
+
+    /**
+     * 启用全部的遍
+     */
+    public SemanticPasses() {
+        this(EnumSet.allOf(Pass.class));
+    }
+
+    /**
+     * @return 收集到的产生式, 未启用 {@link Pass#PRODUCTIONS} 时为 null
+     */
+    public ProductionCollector getProductionCollector() {
+        return productionCollector;
+    }
+
+    /**
+     * @return 生成的 IR, 未启用 {@link Pass#IR} 时为空
+     */
+    public List<Instruction> getIR() {
+        return irGenerator.getIR();
+    }
+
+    /**
+     * @return 分配临时变量的命名上下文, 生成汇编时应继续使用, 见 {@link cn.edu.hitsz.compiler.asm.AssemblyGenerator#loadIR(List, IRBuilder)}
+     */
+    public IRBuilder getIRBuilder() {
+        return irGenerator.getIRBuilder();
+    }
+
+    /**
+     * @return 驱动程序是否已执行接受动作, 为 false 时输入不是合法的程序, 其余结果都不可信
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public void dumpIR(String path) {
+        irGenerator.dumpIR(path);
+    }
+
+    @Override
+    public boolean usesAttributes() {
+        return !enabled.isEmpty();
+    }
+
+    @Override
+    public int attributeColumns() {
+        return enabled.size();
+    }
+
+    @Override
+    public void attachAttributes(AttributeStack stack, int column) {
+        for (int i = 0; i < enabled.size(); i++) {
+            enabled.get(i).attachAttributes(stack, column + i);
+        }
+    }
+
+    @Override
+    public void whenShift(Status currentStatus, Token currentToken) {
+    }
+
+    @Override
+    public void whenReduce(Status currentStatus, Production production) {
+        if (productionCollector != null) {
+            productionCollector.whenReduce(currentStatus, production);
+        }
+        for (final var pass : dispatch[production.index()]) {
+            pass.whenReduce(currentStatus, production);
+        }
+    }
+
+    @Override
+    public void whenAccept(Status currentStatus) {
+        accepted = true;
+        if (productionCollector != null) {
+            productionCollector.whenAccept(currentStatus);
+        }
+    }
+
+    @Override
+    public void setSymbolTable(SymbolTable table) {
+        // 各处理函数属于 semanticAnalyzer 与 irGenerator, 它们各自访问自己的符号表
+        semanticAnalyzer.setSymbolTable(table);
+        irGenerator.setSymbolTable(table);
+    }
+}
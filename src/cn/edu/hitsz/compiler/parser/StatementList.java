@@ -0,0 +1,407 @@
+package cn.edu.hitsz.compiler.parser;
+
+import cn.edu.hitsz.compiler.ir.Instruction;
+import cn.edu.hitsz.compiler.parser.IncrementalCompiler.Statement;
+import cn.edu.hitsz.compiler.parser.table.Production;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * {@link IncrementalCompiler} 中按源代码顺序排列的语句, 分块存放
+ * <br>
+ * 每块至多 2 * {@value #BLOCK} 条语句, 并缓存块内各语句的文本长度, 产生式数与指令数之和.
+ * 按下标或源代码位置查找语句, 以及在中间插入与删除语句时, 只需逐块跳过, 再在一块之内查找, 代价约为 O(√语句数),
+ * 不必像单个数组那样移动或重新计算其后所有语句的位置. 语句的结果改变后应调用 {@link #changed(Statement)},
+ * 所在块的缓存在下次使用时重新计算.
+ */
+final class StatementList implements Iterable<Statement> {
+    private static final int BLOCK = 256;
+
+    /**
+     * 一类可以拼接的结果: 先是各语句自己的部分, 按语句顺序; 再是各语句 EOF 阶段的部分, 按相反的语句顺序
+     *
+     * @param id  在块缓存中的下标
+     * @param own 语句自己的部分
+     * @param eof 语句 EOF 阶段的部分
+     * @param <E> 结果的类型
+     */
+    record Part<E>(int id, Function<Statement, List<E>> own, Function<Statement, List<E>> eof) {
+    }
+
+    static final Part<Production> PRODUCTIONS = new Part<>(0, s -> s.productions, s -> s.eofProductions);
+    static final Part<Instruction> IR = new Part<>(1, s -> s.ir, s -> s.eofIR);
+    private static final List<Part<?>> PARTS = List.of(PRODUCTIONS, IR);
+
+    /**
+     * 一块语句及其缓存
+     */
+    static final class Block {
+        final List<Statement> items = new ArrayList<>();
+        private boolean stale = true;
+        private int length = 0;
+        // EOF 阶段需要重新计算的语句数
+        private int eofInvalid = 0;
+        // 以 Part#id 为下标的各类结果的个数
+        private final int[] own = new int[PARTS.size()];
+        private final int[] eof = new int[PARTS.size()];
+
+        private Block refresh() {
+            if (!stale) {
+                return this;
+            }
+            length = 0;
+            eofInvalid = 0;
+            Arrays.fill(own, 0);
+            Arrays.fill(eof, 0);
+            for (final var statement : items) {
+                length += statement.text.length();
+                if (!statement.eofValid) {
+                    eofInvalid++;
+                }
+                for (final var part : PARTS) {
+                    own[part.id()] += part.own().apply(statement).size();
+                    eof[part.id()] += part.eof().apply(statement).size();
+                }
+            }
+            stale = false;
+            return this;
+        }
+    }
+
+    private final List<Block> blocks = new ArrayList<>();
+    private int size = 0;
+    // 上一次定位到的块及其第一条语句的下标, 顺序访问时不必每次从头逐块跳过
+    private int hintBlock = 0;
+    private int hintStart = 0;
+
+    StatementList() {
+        blocks.add(new Block());
+    }
+
+    int size() {
+        return size;
+    }
+
+    Statement get(int index) {
+        Objects.checkIndex(index, size);
+        final var block = blocks.get(locate(index));
+        return block.items.get(index - hintStart);
+    }
+
+    /**
+     * @return 语句的下标, 语句已被移除时为 -1
+     */
+    int indexOf(Statement statement) {
+        var start = 0;
+        for (final var block : blocks) {
+            if (block == statement.block) {
+                return start + block.items.indexOf(statement);
+            }
+            start += block.items.size();
+        }
+        return -1;
+    }
+
+    /**
+     * @return 全部语句的文本长度之和
+     */
+    int length() {
+        var length = 0;
+        for (final var block : blocks) {
+            length += block.refresh().length;
+        }
+        return length;
+    }
+
+    /**
+     * @return 包含该位置的语句下标, 位置为源代码末尾时为最后一条语句
+     */
+    int indexAt(int offset) {
+        var start = 0;
+        var index = 0;
+        for (final var block : blocks) {
+            final var length = block.refresh().length;
+            if (offset < start + length) {
+                for (final var statement : block.items) {
+                    if (offset < start + statement.text.length()) {
+                        return index;
+                    }
+                    start += statement.text.length();
+                    index++;
+                }
+            }
+            start += length;
+            index += block.items.size();
+        }
+        return size - 1;
+    }
+
+    /**
+     * @return 第 index 条语句在源代码中的开始位置
+     */
+    int startOf(int index) {
+        var start = 0;
+        var first = 0;
+        for (final var block : blocks) {
+            if (index < first + block.items.size()) {
+                for (int i = 0; i < index - first; i++) {
+                    start += block.items.get(i).text.length();
+                }
+                return start;
+            }
+            start += block.refresh().length;
+            first += block.items.size();
+        }
+        return start;
+    }
+
+    /**
+     * 以 with 替换 [from, to) 的语句
+     *
+     * @return 被替换的语句
+     */
+    List<Statement> replace(int from, int to, List<Statement> with) {
+        final var removed = new ArrayList<Statement>(to - from);
+        var b = locate(from);
+        var offset = from - hintStart;
+        while (removed.size() < to - from) {
+            final var block = blocks.get(b);
+            final var range = block.items.subList(offset, Math.min(block.items.size(), offset + to - from - removed.size()));
+            removed.addAll(range);
+            range.clear();
+            block.stale = true;
+            if (block.items.isEmpty() && blocks.size() > 1) {
+                blocks.remove(b);
+            } else {
+                b++;
+            }
+            offset = 0;
+        }
+        for (final var statement : removed) {
+            statement.block = null;
+        }
+        size -= removed.size();
+
+        hintBlock = 0;
+        hintStart = 0;
+        final var at = locate(from);
+        final var block = blocks.get(at);
+        block.items.addAll(from - hintStart, with);
+        for (final var statement : with) {
+            statement.block = block;
+        }
+        block.stale = true;
+        size += with.size();
+        if (block.items.size() > 2 * BLOCK) {
+            split(at);
+        }
+        return removed;
+    }
+
+    /**
+     * 语句的分析结果或 EOF 阶段的结果改变后调用
+     */
+    void changed(Statement statement) {
+        if (statement.block != null) {
+            statement.block.stale = true;
+        }
+    }
+
+    /**
+     * @return 下标小于 before 的语句中 EOF 阶段需要重新计算的最后一条的下标, 没有时为 -1
+     */
+    int lastEofInvalid(int before) {
+        var end = size;
+        for (int b = blocks.size() - 1; b >= 0; b--) {
+            final var block = blocks.get(b).refresh();
+            final var start = end - block.items.size();
+            if (start < before && block.eofInvalid > 0) {
+                for (int i = Math.min(end, before) - 1; i >= start; i--) {
+                    if (!block.items.get(i - start).eofValid) {
+                        return i;
+                    }
+                }
+            }
+            end = start;
+        }
+        return -1;
+    }
+
+    /**
+     * 拼接各语句的某一类结果, 不复制任何结果
+     * <br>
+     * 返回的视图在语句下一次改变之前有效. 遍历的代价与其长度成正比, 按下标访问约为 O(√语句数).
+     *
+     * @param part    结果的类型
+     * @param withEof 是否包括 EOF 阶段的部分
+     * @return 只读视图
+     */
+    <E> List<E> concat(Part<E> part, boolean withEof) {
+        return new Concatenation<>(part, withEof);
+    }
+
+    @Override
+    public Iterator<Statement> iterator() {
+        return blocks.stream().flatMap(block -> block.items.stream()).iterator();
+    }
+
+    /**
+     * @return 包含第 index 条语句的块的下标, index 为语句数时为最后一块; 同时将该块记为提示
+     */
+    private int locate(int index) {
+        if (hintBlock >= blocks.size()) {
+            hintBlock = 0;
+            hintStart = 0;
+        }
+        while (hintBlock > 0 && index < hintStart) {
+            hintBlock--;
+            hintStart -= blocks.get(hintBlock).items.size();
+        }
+        while (hintBlock < blocks.size() - 1 && index >= hintStart + blocks.get(hintBlock).items.size()) {
+            hintStart += blocks.get(hintBlock).items.size();
+            hintBlock++;
+        }
+        return hintBlock;
+    }
+
+    private void split(int at) {
+        final var items = blocks.get(at).items;
+        final var parts = new ArrayList<Block>();
+        for (int from = 0; from < items.size(); from += BLOCK) {
+            final var part = new Block();
+            part.items.addAll(items.subList(from, Math.min(items.size(), from + BLOCK)));
+            for (final var statement : part.items) {
+                statement.block = part;
+            }
+            parts.add(part);
+        }
+        blocks.remove(at);
+        blocks.addAll(at, parts);
+        hintBlock = 0;
+        hintStart = 0;
+    }
+
+    private final class Concatenation<E> extends AbstractList<E> {
+        private final Part<E> part;
+        private final Block[] snapshot;
+        // 以块为下标的各块中自己的部分与 EOF 阶段的部分的结果个数
+        private final int[] ownCounts;
+        private final int[] eofCounts;
+        private final int ownTotal;
+        private final int size;
+
+        Concatenation(Part<E> part, boolean withEof) {
+            this.part = part;
+            this.snapshot = blocks.toArray(new Block[0]);
+            this.ownCounts = new int[snapshot.length];
+            this.eofCounts = new int[snapshot.length];
+            var ownTotal = 0;
+            var eofTotal = 0;
+            for (int b = 0; b < snapshot.length; b++) {
+                snapshot[b].refresh();
+                ownCounts[b] = snapshot[b].own[part.id()];
+                eofCounts[b] = withEof ? snapshot[b].eof[part.id()] : 0;
+                ownTotal += ownCounts[b];
+                eofTotal += eofCounts[b];
+            }
+            this.ownTotal = ownTotal;
+            this.size = ownTotal + eofTotal;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public E get(int index) {
+            Objects.checkIndex(index, size);
+            if (index < ownTotal) {
+                for (int b = 0; ; b++) {
+                    if (index < ownCounts[b]) {
+                        for (final var statement : snapshot[b].items) {
+                            final var list = part.own().apply(statement);
+                            if (index < list.size()) {
+                                return list.get(index);
+                            }
+                            index -= list.size();
+                        }
+                    }
+                    index -= ownCounts[b];
+                }
+            }
+
+            index -= ownTotal;
+            for (int b = snapshot.length - 1; ; b--) {
+                if (index < eofCounts[b]) {
+                    final var items = snapshot[b].items;
+                    for (int i = items.size() - 1; i >= 0; i--) {
+                        final var list = part.eof().apply(items.get(i));
+                        if (index < list.size()) {
+                            return list.get(index);
+                        }
+                        index -= list.size();
+                    }
+                }
+                index -= eofCounts[b];
+            }
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<>() {
+                private int returned = 0;
+                private Iterator<E> current = Collections.emptyIterator();
+                // 先正向遍历各语句自己的部分, 再反向遍历 EOF 阶段的部分
+                private boolean backward = false;
+                private int block = 0;
+                private int item = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return returned < size;
+                }
+
+                @Override
+                public E next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    while (!current.hasNext()) {
+                        advance();
+                    }
+                    returned++;
+                    return current.next();
+                }
+
+                private void advance() {
+                    if (!backward) {
+                        if (block == snapshot.length) {
+                            backward = true;
+                            block = snapshot.length - 1;
+                            item = snapshot[block].items.size() - 1;
+                        } else if (item < snapshot[block].items.size()) {
+                            current = part.own().apply(snapshot[block].items.get(item++)).iterator();
+                        } else {
+                            block++;
+                            item = 0;
+                        }
+                    } else if (item >= 0) {
+                        current = part.eof().apply(snapshot[block].items.get(item--)).iterator();
+                    } else {
+                        block--;
+                        item = snapshot[block].items.size() - 1;
+                    }
+                }
+            };
+        }
+    }
+}
@@ -3,11 +3,12 @@ package cn.edu.hitsz.compiler.parser;
 import cn.edu.hitsz.compiler.lexer.Token;
 import cn.edu.hitsz.compiler.parser.table.*;
 import cn.edu.hitsz.compiler.symtab.SymbolTable;
+import cn.edu.hitsz.compiler.utils.Cancellation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Stack;
 
 // 实验二: 实现 LR 语法分析驱动程序
 
@@ -24,7 +25,11 @@ public class SyntaxAnalyzer {
     private final List<ActionObserver> observers = new ArrayList<>();
 
     private Iterator<Token> tokens = null;
-    private LRTable table = null;
+    private CompiledLRTable table = null;
+
+    // 上一次分析结束时的分析栈, 供增量分析取出剩余部分
+    private int[] statusStack = null;
+    private int top = 0;
 
     public SyntaxAnalyzer(SymbolTable symbolTable) {
         this.symbolTable = symbolTable;
@@ -89,75 +94,229 @@ public class SyntaxAnalyzer {
         // 你可以自行选择要如何使用该表格:
         // 是直接对 LRTable 调用 getAction/getGoto, 抑或是直接将 initStatus 存起来使用
 
+        // 驱动程序只在编译后的整数表上查表, 状态与产生式对象仅用于通知观察者
+        this.table = table.compile();
+    }
+
+    /**
+     * 加载已编译的 LR 分析表, 例如以 {@link LRTable#compress()} 压缩后的表
+     *
+     * @param table 编译后的分析表
+     */
+    public void loadLRTable(CompiledLRTable table) {
         this.table = table;
     }
 
+    /**
+     * 为需要属性的观察者分配属性栈中的列
+     *
+     * @return 属性栈, 没有观察者需要属性时为 null
+     */
+    private AttributeStack attachAttributes() {
+        var columns = 0;
+        for (final var observer : observers) {
+            if (observer.usesAttributes()) {
+                columns += observer.attributeColumns();
+            }
+        }
+        if (columns == 0) {
+            return null;
+        }
+
+        final var attributes = new AttributeStack(columns);
+        var column = 0;
+        for (final var observer : observers) {
+            if (observer.usesAttributes()) {
+                observer.attachAttributes(attributes, column);
+                column += observer.attributeColumns();
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * 一次分析的结束方式
+     */
+    enum Outcome {
+        /**
+         * 已接受
+         */
+        ACCEPTED,
+        /**
+         * 词法单元已用完, 尚未接受
+         */
+        EXHAUSTED,
+        /**
+         * 遇到语法错误
+         */
+        ERROR,
+        /**
+         * 规约需要弹出栈底状态. 只在从中间状态开始分析 ({@link #runSegment(int)}) 时出现, 此时栈底以下的内容未知, 无法继续
+         */
+        UNDERFLOW,
+    }
+
+    /**
+     * 一段分析结束时的结束方式, 以及分析栈中栈底以上的部分: 各状态, 对应的词法单元 (非终结符为 null) 与按行存放的属性
+     */
+    record Residual(Outcome outcome, int[] statuses, Token[] tokens, Object[] values) {
+    }
+
     public void run() {
         // 实现驱动程序
         // 你需要根据上面的输入来实现 LR 语法分析的驱动程序
         // 请分别在遇到 Shift, Reduce, Accept 的时候调用上面的 callWhenInShift, callWhenInReduce, callWhenInAccept
         // 否则用于为实验二打分的产生式输出可能不会正常工作
 
-        // 符号栈
-        Stack<Symbol> symbolStack = new Stack<>();
-        // 状态栈
-        Stack<Status> statusStack = new Stack<>();
-        // 初始状态为(S0,eof)
-        symbolStack.push(new Symbol(Token.eof()));
-        statusStack.push(table.getInit());
+        // 状态栈: 只保存状态编号, 按需倍增
+        final var statusStack = new int[64];
+        // 初始状态为 S0
+        statusStack[0] = table.initStatus();
+        // 属性栈: 为每个需要属性的观察者分配一列, 没有这样的观察者时不维护
+        drive(statusStack, 0, attachAttributes());
+    }
 
+    /**
+     * 增量分析用: 以 entryStatus 为栈底状态分析已加载的词法单元 (不含 EOF), 直到词法单元用完
+     * <br>
+     * 若分析过程中没有弹出栈底状态, 则结果只取决于 entryStatus 与这段词法单元, 与栈底以下的内容无关,
+     * 将剩余部分接在任何以 entryStatus 为栈顶的分析栈上, 都与从头分析到此处的分析栈相同.
+     *
+     * @param entryStatus 栈底状态
+     * @return 结束方式与栈底以上的剩余部分
+     */
+    Residual runSegment(int entryStatus) {
+        return runSegment(entryStatus, List.of());
+    }
+
+    /**
+     * 增量分析用: 将各段的剩余部分依次接在栈底状态 entryStatus 上, 从得到的分析栈继续分析已加载的词法单元,
+     * 直到词法单元用完, 接受, 出错或需要弹出栈底状态
+     * <br>
+     * 例如只加载 EOF 时, 得到的是这些剩余部分在 EOF 之前能完成的规约, 与栈底以下的内容无关.
+     *
+     * @param entryStatus 栈底状态
+     * @param residuals   各段的剩余部分, 应由注册了相同观察者的驱动程序得到
+     * @return 结束方式与栈底以上的剩余部分
+     */
+    Residual runSegment(int entryStatus, List<Residual> residuals) {
+        var depth = 0;
+        for (final var residual : residuals) {
+            depth += residual.statuses().length;
+        }
+
+        final var statusStack = new int[Math.max(64, Integer.highestOneBit(depth) * 2)];
+        statusStack[0] = entryStatus;
+        final var attributes = attachAttributes();
+        var top = 0;
+        for (final var residual : residuals) {
+            System.arraycopy(residual.statuses(), 0, statusStack, top + 1, residual.statuses().length);
+            top += residual.statuses().length;
+            if (attributes != null) {
+                attributes.pushAll(residual.tokens(), residual.values());
+            }
+        }
+        final var outcome = drive(statusStack, top, attributes);
+
+        final var statuses = Arrays.copyOfRange(this.statusStack, 1, this.top + 1);
+        final var size = attributes == null ? 0 : attributes.size();
+        return new Residual(outcome, statuses,
+            attributes == null ? new Token[0] : attributes.tokens(0, size),
+            attributes == null ? new Object[0] : attributes.values(0, size));
+    }
+
+    /**
+     * 驱动程序主循环, 结束时将分析栈留在 {@link #statusStack} 与 {@link #top} 中
+     *
+     * @param statusStack 状态栈
+     * @param top         栈顶位置
+     * @param attributes  属性栈, 可为 null
+     * @return 结束方式
+     */
+    private Outcome drive(int[] statusStack, int top, AttributeStack attributes) {
         // 输入符号
         Token token = null;
         // 上一步是否为移位动作标志，初始化为true以读入第一个符号
         boolean isShift = true;
-        while (tokens.hasNext() || !symbolStack.isEmpty()) {
+        Outcome outcome;
+        // 已执行的动作数, 用于定期检查是否被取消
+        int steps = 0;
+        loop:
+        while (true) {
+            Cancellation.checkpoint(++steps);
             // 当前输入符号
             if(isShift){
+                if (!tokens.hasNext()) {
+                    outcome = Outcome.EXHAUSTED;
+                    break;
+                }
                 token = tokens.next();
                 isShift = false;
             }
             // 根据栈顶元素和输入符号，得到对应动作
-            Action action = table.getAction(statusStack.peek(),token);
+            int action = table.action(statusStack[top], token.getKind());
             // 执行不同动作
-            switch (action.getKind()){
+            switch (CompiledLRTable.kindOf(action)){
                 // 移进
-                case Shift -> {
-                    // 移进动作的状态
-                    Status actionStatus = action.getStatus();
-                    // 将输入符号与状态压入栈
-                    symbolStack.push(new Symbol(token));
-                    statusStack.push(actionStatus);
+                case CompiledLRTable.SHIFT -> {
+                    // 将移进动作的状态压入栈
+                    if (++top == statusStack.length) {
+                        statusStack = Arrays.copyOf(statusStack, statusStack.length * 2);
+                    }
+                    statusStack[top] = CompiledLRTable.targetOf(action);
+                    if (attributes != null) {
+                        attributes.shift(token);
+                    }
                     // 移进动作
-                    callWhenInShift(actionStatus, token);
+                    callWhenInShift(table.getStatus(statusStack[top]), token);
                     isShift = true;
                 }
                 // 归约
-                case Reduce -> {
+                case CompiledLRTable.REDUCE -> {
                     // 进行归约的产生式
-                    Production production = action.getProduction();
-                    // 将产生式右部的若干符号弹出
-                    for(int i=0; i<production.body().size(); i++){
-                        symbolStack.pop();
-                        statusStack.pop();
+                    int productionIndex = CompiledLRTable.targetOf(action);
+                    // 栈底状态 (位置 0) 不能被弹出, 从初始状态开始分析时不会发生
+                    if (top < table.bodyLength(productionIndex)) {
+                        outcome = Outcome.UNDERFLOW;
+                        break loop;
                     }
-                    // 再压入归约的产生式左部的符号
-                    symbolStack.push(new Symbol(production.head()));
+                    // 将产生式右部的若干状态一次弹出
+                    top -= table.bodyLength(productionIndex);
                     // 根据此时栈顶状态和归约得到的非终结符，得到将转移的状态并压入栈
-                    statusStack.push(table.getGoto(statusStack.peek(), production.head()));
+                    int gotoStatus = table.goto_(statusStack[top], table.headOf(productionIndex));
+                    if (++top == statusStack.length) {
+                        statusStack = Arrays.copyOf(statusStack, statusStack.length * 2);
+                    }
+                    statusStack[top] = gotoStatus;
                     // 归约动作
-                    callWhenInReduce(statusStack.peek(), production);
+                    callWhenInReduce(gotoStatus < 0 ? Status.error() : table.getStatus(gotoStatus),
+                        table.getProduction(productionIndex));
+                    // 各观察者都已读取产生式体的属性, 统一出栈
+                    if (attributes != null) {
+                        attributes.reduce(table.bodyLength(productionIndex));
+                    }
+                    if (gotoStatus < 0) {
+                        outcome = Outcome.ERROR;
+                        break loop;
+                    }
                 }
                 // 接受
-                case Accept -> {
+                case CompiledLRTable.ACCEPT -> {
                     // 接受动作
-                    callWhenInAccept(statusStack.peek());
-                    return;
+                    callWhenInAccept(table.getStatus(statusStack[top]));
+                    outcome = Outcome.ACCEPTED;
+                    break loop;
                 }
                 // 报错
-                case Error -> {
-                    return;
+                default -> {
+                    outcome = Outcome.ERROR;
+                    break loop;
                 }
             }
         }
+
+        this.statusStack = statusStack;
+        this.top = top;
+        return outcome;
     }
 }
@@ -0,0 +1,226 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LR 分析表的二进制格式
+ * <br>
+ * 读取 CSV 时每个规约格子都要 split 一次并按产生式文本查一次 Map, 启动时间几乎都花在这里. 二进制格式把这些工作提前到转换时完成:
+ * 文件里直接存放 {@link DenseLRTable} 编码好的 ACTION 与 GOTO 矩阵, 加载时将文件映射到内存后整块读出即可,
+ * 只有表头中的终结符, 非终结符与产生式还需要按名字解析, 其数量与文法大小相关, 与表格格子数无关.
+ * <br>
+ * 文件布局 (大端序, 字符串为 int 长度加 UTF-8 字节):
+ * <pre>
+ * int 魔数 "LRTB", int 版本号
+ * int 终结符个数,   字符串[] 终结符
+ * int 非终结符个数, 字符串[] 非终结符
+ * int 产生式个数,   {int 编号, 字符串 文本}[] 出现在规约动作中的产生式
+ * int 状态个数,     int[] 各状态编号 (按 LRTable 中的顺序)
+ * int 行数,         int[行数 * 终结符个数] ACTION, int[行数 * 非终结符个数] GOTO
+ * </pre>
+ */
+public final class BinaryTableFormat {
+    private static final int MAGIC = 0x4C525442;
+    private static final int VERSION = 1;
+
+    /**
+     * 将 LR 分析表写为二进制格式
+     *
+     * @param table LR 分析表
+     * @param path  输出文件路径
+     */
+    public static void write(LRTable table, String path) {
+        final var dense = new DenseLRTable(table);
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(table.getTerminals().size());
+            for (final var terminal : table.getTerminals()) {
+                writeString(out, terminal.getTermName());
+            }
+            out.writeInt(table.getNonTerminals().size());
+            for (final var nonTerminal : table.getNonTerminals()) {
+                writeString(out, nonTerminal.getTermName());
+            }
+
+            final var productions = new ArrayList<Production>();
+            for (int i = 0; i < dense.productionCount(); i++) {
+                if (dense.getProduction(i) != null) {
+                    productions.add(dense.getProduction(i));
+                }
+            }
+            out.writeInt(productions.size());
+            for (final var production : productions) {
+                out.writeInt(production.index());
+                writeString(out, production.toString());
+            }
+
+            final var statuses = table.getStatusInIndexOrder();
+            out.writeInt(statuses.size());
+            for (final var status : statuses) {
+                out.writeInt(status.index());
+            }
+
+            out.writeInt(dense.statusCount());
+            for (final var action : dense.getActions()) {
+                out.writeInt(action);
+            }
+            for (final var goto_ : dense.getGotos()) {
+                out.writeInt(goto_);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on writing table", e);
+        }
+
+        FileUtils.writeBytes(path, bytes.toByteArray());
+    }
+
+    /**
+     * 将二进制格式的分析表映射到内存并读出, 读出的表已经带有编译好的稠密形式, {@link LRTable#compile()} 不会再重新编译
+     *
+     * @param path 二进制分析表路径
+     * @return LRTable
+     * @throws RuntimeException 文件格式不正确, 或与当前的码点文件/语法文件不一致
+     */
+    public static LRTable load(String path) {
+        return load(path, GrammarInfo.standard());
+    }
+
+    /**
+     * 同 {@link #load(String)}, 但表中的终结符与产生式从给定的文法中查找
+     *
+     * @param path    二进制分析表路径
+     * @param grammar 分析表所属的文法
+     * @return LRTable
+     * @throws RuntimeException 文件格式不正确, 或与该文法不一致
+     */
+    public static LRTable load(String path, Grammar grammar) {
+        return read(FileUtils.mapFile(path), grammar);
+    }
+
+    /**
+     * 从缓冲区中读出二进制格式的分析表
+     *
+     * @param buffer  缓冲区, 读取从其当前位置开始
+     * @param grammar 分析表所属的文法
+     * @return LRTable
+     */
+    static LRTable read(ByteBuffer buffer, Grammar grammar) {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new RuntimeException("Not a binary LR table");
+        }
+        final var version = buffer.getInt();
+        if (version != VERSION) {
+            throw new RuntimeException("Unsupported binary LR table version: " + version);
+        }
+
+        final var terminals = new ArrayList<TokenKind>();
+        final var terminalCount = buffer.getInt();
+        for (int i = 0; i < terminalCount; i++) {
+            terminals.add(grammar.getTokenKinds().fromString(readString(buffer)));
+        }
+        final var nonTerminals = new ArrayList<NonTerminal>();
+        final var nonTerminalCount = buffer.getInt();
+        for (int i = 0; i < nonTerminalCount; i++) {
+            nonTerminals.add(new NonTerminal(readString(buffer)));
+        }
+
+        final var productionCount = buffer.getInt();
+        final var productions = new ArrayList<Production>();
+        for (int i = 0; i < productionCount; i++) {
+            final var index = buffer.getInt();
+            final var production = grammar.getProductionByText(readString(buffer));
+            if (production.index() != index) {
+                throw new RuntimeException("Production %s does not match the grammar file".formatted(production));
+            }
+            productions.add(production);
+        }
+        var maxProduction = -1;
+        for (final var production : productions) {
+            maxProduction = Math.max(maxProduction, production.index());
+        }
+        final var productionByIndex = new Production[maxProduction + 1];
+        for (final var production : productions) {
+            productionByIndex[production.index()] = production;
+        }
+
+        final var statusCount = buffer.getInt();
+        final var statusInIndexOrder = new ArrayList<Status>(statusCount);
+        for (int i = 0; i < statusCount; i++) {
+            statusInIndexOrder.add(Status.create(buffer.getInt()));
+        }
+
+        final var rowCount = buffer.getInt();
+        final var actions = new int[rowCount * terminalCount];
+        final var gotos = new int[rowCount * nonTerminalCount];
+        final var ints = buffer.asIntBuffer();
+        ints.get(actions);
+        ints.get(gotos);
+
+        final var statusByIndex = new Status[rowCount];
+        for (final var status : statusInIndexOrder) {
+            statusByIndex[status.index()] = status;
+        }
+        fillStatuses(statusInIndexOrder, statusByIndex, productionByIndex, terminals, nonTerminals, actions, gotos);
+
+        final var table = new LRTable(statusInIndexOrder, terminals, nonTerminals);
+        table.setCompiled(new DenseLRTable(table, actions, gotos));
+        return table;
+    }
+
+    /**
+     * 根据编码后的矩阵为各 Status 对象填充 action 与 goto, 以便 LRTable 本身的接口和观察者照常使用
+     */
+    private static void fillStatuses(List<Status> statuses, Status[] statusByIndex, Production[] productionByIndex,
+                                     List<TokenKind> terminals, List<NonTerminal> nonTerminals,
+                                     int[] actions, int[] gotos) {
+        final var terminalCount = terminals.size();
+        final var nonTerminalCount = nonTerminals.size();
+        for (final var status : statuses) {
+            final var row = status.index();
+            for (int i = 0; i < terminalCount; i++) {
+                final var action = actions[row * terminalCount + i];
+                final var target = CompiledLRTable.targetOf(action);
+                switch (CompiledLRTable.kindOf(action)) {
+                    case CompiledLRTable.SHIFT -> status.setAction(terminals.get(i), Action.shift(statusByIndex[target]));
+                    case CompiledLRTable.REDUCE -> status.setAction(terminals.get(i), Action.reduce(productionByIndex[target]));
+                    case CompiledLRTable.ACCEPT -> status.setAction(terminals.get(i), Action.accept());
+                    default -> {
+                    }
+                }
+            }
+            for (int i = 0; i < nonTerminalCount; i++) {
+                final var target = gotos[row * nonTerminalCount + i];
+                if (target >= 0) {
+                    status.setGoto(nonTerminals.get(i), statusByIndex[target]);
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        final var bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final var bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private BinaryTableFormat() {
+    }
+}
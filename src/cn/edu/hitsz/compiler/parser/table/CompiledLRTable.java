@@ -0,0 +1,224 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+/**
+ * 编译为整数编码的 LR 分析表, 由 {@link LRTable#compile()} 得到
+ * <br>
+ * {@link Status#getAction(TokenKind)} 每次查表都要对终结符名字做一次字符串哈希与比较, 驱动程序的热路径上则只需要整数:
+ * 状态以其编号表示, 终结符与非终结符以其在表头中的序号表示, 一个动作打包为一个 int,
+ * 低 2 位为动作类型 ({@link #ERROR}, {@link #SHIFT}, {@link #REDUCE}, {@link #ACCEPT}),
+ * 其余位为移入的目标状态编号或规约的产生式编号. 错误动作恰好编码为 0.
+ * <br>
+ * 本类保存各种表示方式共用的元数据 (状态, 产生式, 终结符序号等), ACTION 与 GOTO 矩阵的具体存储方式由子类决定.
+ */
+public abstract class CompiledLRTable {
+    public static final int ERROR = 0;
+    public static final int SHIFT = 1;
+    public static final int REDUCE = 2;
+    public static final int ACCEPT = 3;
+
+    private static final int KIND_BITS = 2;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    /**
+     * @param action 打包后的动作
+     * @return 动作的类型
+     */
+    public static int kindOf(int action) {
+        return action & KIND_MASK;
+    }
+
+    /**
+     * @param action 打包后的动作
+     * @return 移入动作的目标状态编号, 或规约动作的产生式编号
+     */
+    public static int targetOf(int action) {
+        return action >>> KIND_BITS;
+    }
+
+    static int pack(int kind, int target) {
+        return (target << KIND_BITS) | kind;
+    }
+
+    static int pack(Action action) {
+        return switch (action.getKind()) {
+            case Shift -> pack(SHIFT, action.getStatus().index());
+            case Reduce -> pack(REDUCE, action.getProduction().index());
+            case Accept -> pack(ACCEPT, 0);
+            case Error -> ERROR;
+        };
+    }
+
+    // 以编号为下标的状态, 编号不连续时中间为 null
+    private final Status[] statuses;
+    private final int initStatus;
+    // 以码点 + 1 为下标的终结符序号, 不在表中的终结符为 -1
+    private final int[] terminalOrdinals;
+    private final int terminalCount;
+    private final NonTerminal[] nonTerminals;
+    // 以产生式编号为下标的产生式, 及其头部的非终结符序号与体的长度
+    private final Production[] productions;
+    private final int[] productionHeads;
+    private final int[] productionLengths;
+
+    protected CompiledLRTable(LRTable table) {
+        final var statusList = table.getStatusInIndexOrder();
+        final var terminals = table.getTerminals();
+        final var nonTerminalList = table.getNonTerminals();
+
+        // 这里只用普通循环: 每个短命的编译器进程都要执行一次, Stream 与 lambda 的首次初始化开销比表本身还大
+        var maxStatus = -1;
+        for (final var status : statusList) {
+            maxStatus = Math.max(maxStatus, status.index());
+        }
+        statuses = new Status[maxStatus + 1];
+        for (final var status : statusList) {
+            statuses[status.index()] = status;
+        }
+        initStatus = table.getInit().index();
+
+        var maxCode = -1;
+        for (final var terminal : terminals) {
+            maxCode = Math.max(maxCode, terminal.getCode());
+        }
+        terminalOrdinals = new int[maxCode + 2];
+        Arrays.fill(terminalOrdinals, -1);
+        for (int i = 0; i < terminals.size(); i++) {
+            terminalOrdinals[terminals.get(i).getCode() + 1] = i;
+        }
+        terminalCount = terminals.size();
+
+        nonTerminals = nonTerminalList.toArray(new NonTerminal[0]);
+        final var nonTerminalOrdinals = new HashMap<NonTerminal, Integer>();
+        for (int i = 0; i < nonTerminals.length; i++) {
+            nonTerminalOrdinals.put(nonTerminals[i], i);
+        }
+
+        // 只有出现在规约动作中的产生式才需要记录
+        final var reduced = new LinkedHashSet<Production>();
+        for (final var status : statusList) {
+            for (final var action : status.action().values()) {
+                if (action.getKind() == Action.ActionKind.Reduce) {
+                    reduced.add(action.getProduction());
+                }
+            }
+        }
+        var maxProduction = -1;
+        for (final var production : reduced) {
+            maxProduction = Math.max(maxProduction, production.index());
+        }
+        productions = new Production[maxProduction + 1];
+        productionHeads = new int[maxProduction + 1];
+        productionLengths = new int[maxProduction + 1];
+        for (final var production : reduced) {
+            productions[production.index()] = production;
+            productionHeads[production.index()] = nonTerminalOrdinals.getOrDefault(production.head(), -1);
+            productionLengths[production.index()] = production.body().size();
+        }
+    }
+
+    /**
+     * @param status   状态编号
+     * @param terminal 终结符序号
+     * @return 打包后的动作
+     */
+    public abstract int action(int status, int terminal);
+
+    /**
+     * @param status      状态编号
+     * @param nonTerminal 非终结符序号
+     * @return 应转移到的状态编号, 出错时为 -1
+     */
+    public abstract int goto_(int status, int nonTerminal);
+
+    /**
+     * @param status 状态编号
+     * @param kind   终结符
+     * @return 打包后的动作, 终结符不在表中时为错误动作
+     */
+    public int action(int status, TokenKind kind) {
+        final var terminal = terminalOrdinal(kind);
+        return terminal < 0 ? ERROR : action(status, terminal);
+    }
+
+    /**
+     * @param kind 终结符
+     * @return 终结符在表头中的序号, 不在表中时为 -1
+     */
+    public int terminalOrdinal(TokenKind kind) {
+        final var slot = kind.getCode() + 1;
+        return slot < terminalOrdinals.length ? terminalOrdinals[slot] : -1;
+    }
+
+    /**
+     * @return 起始状态的编号
+     */
+    public int initStatus() {
+        return initStatus;
+    }
+
+    /**
+     * @param index 状态编号
+     * @return 该编号对应的状态对象, 用于通知观察者
+     */
+    public Status getStatus(int index) {
+        return statuses[index];
+    }
+
+    /**
+     * @param index 产生式编号
+     * @return 该编号对应的产生式, 该产生式不出现在规约动作中时为 null
+     */
+    public Production getProduction(int index) {
+        return productions[index];
+    }
+
+    /**
+     * @param production 产生式编号
+     * @return 产生式头部的非终结符序号
+     */
+    public int headOf(int production) {
+        return productionHeads[production];
+    }
+
+    /**
+     * @param production 产生式编号
+     * @return 产生式体的长度
+     */
+    public int bodyLength(int production) {
+        return productionLengths[production];
+    }
+
+    /**
+     * @return 产生式编号的上界 (不含)
+     */
+    public int productionCount() {
+        return productions.length;
+    }
+
+    /**
+     * @return 状态编号的上界 (不含)
+     */
+    public int statusCount() {
+        return statuses.length;
+    }
+
+    /**
+     * @return 表中终结符的个数
+     */
+    public int terminalCount() {
+        return terminalCount;
+    }
+
+    /**
+     * @return 表中非终结符的个数
+     */
+    public int nonTerminalCount() {
+        return nonTerminals.length;
+    }
+}
@@ -0,0 +1,225 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.function.IntPredicate;
+
+/**
+ * 以行偏移 (row displacement, 又称 comb) 压缩的编译后 LR 分析表, 由 {@link LRTable#compress()} 得到
+ * <br>
+ * 大文法的分析表中绝大多数格子都是空的错误动作. 压缩分两步:
+ * <ol>
+ *     <li>默认规约: 每个状态中出现次数最多的规约动作作为该行的默认动作, 与之相同的格子以及错误格子都不再存储.
+ *     这与 yacc/bison 的做法一样, 只会让错误在多做几次规约之后才被发现, 而不会接受错误的输入;</li>
+ *     <li>行偏移: 各行剩下的有效格子按偏移 {@code base[行]} 叠放进同一个一维数组 {@code next} 中,
+ *     互不重叠, 并以 {@code check} 数组记录每个位置属于哪一行.</li>
+ * </ol>
+ * 查表时先看 {@code check[base[s] + c]} 是否为 s, 是则取 {@code next} 中的值, 否则取该行的默认值, 只有几次数组访问.
+ * <br>
+ * GOTO 表按非终结符一列列压缩: 正确的分析过程中只会查到有效的 GOTO 格子, 所以每列以出现最多的目标状态为默认值,
+ * 空格子也同样取默认值.
+ */
+public final class CompressedLRTable extends CompiledLRTable {
+    // ACTION: 以状态编号为下标的偏移与默认动作
+    private final int[] actionBase;
+    private final int[] actionDefault;
+    private final int[] actionNext;
+    private final int[] actionCheck;
+
+    // GOTO: 以非终结符序号为下标的偏移与默认目标状态
+    private final int[] gotoBase;
+    private final int[] gotoDefault;
+    private final int[] gotoNext;
+    private final int[] gotoCheck;
+
+    CompressedLRTable(LRTable table) {
+        super(table);
+        final var terminals = table.getTerminals();
+        final var nonTerminals = table.getNonTerminals();
+        final var statuses = table.getStatusInIndexOrder();
+
+        // ACTION: 每行选出默认规约, 只保留与之不同的非错误格子
+        actionDefault = new int[statusCount()];
+        final var actionRows = new int[statusCount()][];
+        for (final var status : statuses) {
+            final var row = new int[terminals.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = pack(status.getAction(terminals.get(i)));
+            }
+
+            final var defaultAction = mostFrequent(row, action -> kindOf(action) == REDUCE, ERROR);
+            actionDefault[status.index()] = defaultAction;
+            actionRows[status.index()] = significant(row, defaultAction, ERROR);
+        }
+        final var actionComb = new Comb(actionRows);
+        actionBase = actionComb.base;
+        actionNext = actionComb.next;
+        actionCheck = actionComb.check;
+
+        // GOTO: 每列选出最常见的目标状态作为默认值
+        gotoDefault = new int[nonTerminals.size()];
+        final var gotoColumns = new int[nonTerminals.size()][];
+        for (int i = 0; i < nonTerminals.size(); i++) {
+            final var column = new int[statusCount()];
+            Arrays.fill(column, -1);
+            for (final var status : statuses) {
+                final var target = status.getGoto(nonTerminals.get(i));
+                if (!target.isError()) {
+                    column[status.index()] = target.index();
+                }
+            }
+
+            gotoDefault[i] = mostFrequent(column, target -> target >= 0, -1);
+            gotoColumns[i] = significant(column, gotoDefault[i], -1);
+        }
+        final var gotoComb = new Comb(gotoColumns);
+        gotoBase = gotoComb.base;
+        gotoNext = gotoComb.next;
+        gotoCheck = gotoComb.check;
+    }
+
+    @Override
+    public int action(int status, int terminal) {
+        final var index = actionBase[status] + terminal;
+        if (index < actionCheck.length && actionCheck[index] == status) {
+            return actionNext[index];
+        }
+        return actionDefault[status];
+    }
+
+    @Override
+    public int goto_(int status, int nonTerminal) {
+        final var index = gotoBase[nonTerminal] + status;
+        if (index < gotoCheck.length && gotoCheck[index] == nonTerminal) {
+            return gotoNext[index];
+        }
+        return gotoDefault[nonTerminal];
+    }
+
+    /**
+     * @return 压缩后各数组所占的 int 个数之和
+     */
+    public int compressedSize() {
+        return actionBase.length + actionDefault.length + actionNext.length + actionCheck.length
+            + gotoBase.length + gotoDefault.length + gotoNext.length + gotoCheck.length;
+    }
+
+    /**
+     * @return 未压缩的稠密表所需的 int 个数
+     */
+    public int denseSize() {
+        return statusCount() * (terminalCount() + nonTerminalCount());
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedLRTable(%d states, %d -> %d ints)".formatted(statusCount(), denseSize(), compressedSize());
+    }
+
+    /**
+     * @return 满足条件的值中出现次数最多的一个, 没有满足条件的值时返回 fallback
+     */
+    private static int mostFrequent(int[] values, IntPredicate candidate, int fallback) {
+        final var counts = new HashMap<Integer, Integer>();
+        var best = fallback;
+        var bestCount = 0;
+        for (final var value : values) {
+            if (!candidate.test(value)) {
+                continue;
+            }
+            final var count = counts.merge(value, 1, Integer::sum);
+            if (count > bestCount) {
+                best = value;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return 与默认值及空值都不同的格子, 以 {下标, 值} 成对排列
+     */
+    private static int[] significant(int[] row, int defaultValue, int empty) {
+        final var pairs = new ArrayList<Integer>();
+        for (int i = 0; i < row.length; i++) {
+            if (row[i] != defaultValue && row[i] != empty) {
+                pairs.add(i);
+                pairs.add(row[i]);
+            }
+        }
+        return pairs.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 把若干稀疏行叠放进一维数组: 按有效格子数从多到少, 为每行找到第一个不与已放置格子冲突的偏移
+     */
+    private static final class Comb {
+        final int[] base;
+        int[] next = new int[64];
+        int[] check = new int[64];
+        // 已被占用的最大下标 + 1
+        private int used = 0;
+
+        Comb(int[][] rows) {
+            base = new int[rows.length];
+            Arrays.fill(check, -1);
+
+            final var order = new ArrayList<Integer>();
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] != null) {
+                    order.add(i);
+                }
+            }
+            order.sort(Comparator.comparingInt((Integer i) -> rows[i].length).reversed());
+
+            for (final var row : order) {
+                place(row, rows[row]);
+            }
+            next = Arrays.copyOf(next, used);
+            check = Arrays.copyOf(check, used);
+        }
+
+        private void place(int row, int[] pairs) {
+            if (pairs.length == 0) {
+                // 没有有效格子的行不占位置, 偏移为 0 时 check 一定不等于该行, 总是取默认值
+                return;
+            }
+
+            var offset = 0;
+            while (!fits(offset, pairs)) {
+                offset++;
+            }
+
+            base[row] = offset;
+            for (int i = 0; i < pairs.length; i += 2) {
+                final var index = offset + pairs[i];
+                ensureCapacity(index + 1);
+                next[index] = pairs[i + 1];
+                check[index] = row;
+                used = Math.max(used, index + 1);
+            }
+        }
+
+        private boolean fits(int offset, int[] pairs) {
+            for (int i = 0; i < pairs.length; i += 2) {
+                final var index = offset + pairs[i];
+                if (index < check.length && check[index] >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > check.length) {
+                final var oldLength = check.length;
+                final var newLength = Math.max(capacity, oldLength * 2);
+                next = Arrays.copyOf(next, newLength);
+                check = Arrays.copyOf(check, newLength);
+                Arrays.fill(check, oldLength, newLength, -1);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import java.util.Arrays;
+
+/**
+ * 以稠密矩阵存储的编译后 LR 分析表
+ * <br>
+ * ACTION 与 GOTO 各是一个按行展开的 int 数组, 以 {@code 状态编号 * 列数 + 序号} 为下标, 一次查表就是一次数组访问.
+ * 对本实验规模的文法, 整张表不过几 KB, 完全可以放进 L1 缓存.
+ */
+final class DenseLRTable extends CompiledLRTable {
+    private final int terminalCount;
+    private final int nonTerminalCount;
+    private final int[] actions;
+    private final int[] gotos;
+
+    DenseLRTable(LRTable table) {
+        super(table);
+        final var terminals = table.getTerminals();
+        final var nonTerminals = table.getNonTerminals();
+        terminalCount = terminals.size();
+        nonTerminalCount = nonTerminals.size();
+
+        actions = new int[statusCount() * terminalCount];
+        gotos = new int[statusCount() * nonTerminalCount];
+        Arrays.fill(gotos, -1);
+
+        for (final var status : table.getStatusInIndexOrder()) {
+            final var row = status.index();
+            for (int i = 0; i < terminalCount; i++) {
+                actions[row * terminalCount + i] = pack(status.getAction(terminals.get(i)));
+            }
+            for (int i = 0; i < nonTerminalCount; i++) {
+                final var target = status.getGoto(nonTerminals.get(i));
+                if (!target.isError()) {
+                    gotos[row * nonTerminalCount + i] = target.index();
+                }
+            }
+        }
+    }
+
+    /**
+     * 以已经按 {@link CompiledLRTable} 编码好的矩阵构造, 供二进制格式的加载器直接使用
+     *
+     * @param table   矩阵对应的 LR 表
+     * @param actions 按行展开的 ACTION 矩阵
+     * @param gotos   按行展开的 GOTO 矩阵
+     */
+    DenseLRTable(LRTable table, int[] actions, int[] gotos) {
+        super(table);
+        terminalCount = table.getTerminals().size();
+        nonTerminalCount = table.getNonTerminals().size();
+        if (actions.length != statusCount() * terminalCount || gotos.length != statusCount() * nonTerminalCount) {
+            throw new RuntimeException("Size of matrices does not match the table");
+        }
+
+        this.actions = actions;
+        this.gotos = gotos;
+    }
+
+    int[] getActions() {
+        return actions;
+    }
+
+    int[] getGotos() {
+        return gotos;
+    }
+
+    @Override
+    public int action(int status, int terminal) {
+        return actions[status * terminalCount + terminal];
+    }
+
+    @Override
+    public int goto_(int status, int nonTerminal) {
+        return gotos[status * nonTerminalCount + nonTerminal];
+    }
+}
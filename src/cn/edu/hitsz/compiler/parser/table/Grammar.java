@@ -0,0 +1,118 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKinds;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.util.*;
+
+/**
+ * 从一个语法文件读取的文法, 创建后不再改变
+ * <br>
+ * 产生式体中的终结符取自给定的 {@link TokenKinds}, 其余符号为非终结符. 不同的语法文件 (或同一语法文件配合不同的码点文件)
+ * 得到互不相干的 Grammar, 可以在同一进程中同时使用. {@link GrammarInfo} 的各静态方法查询的是默认的语法文件.
+ */
+public final class Grammar {
+    private final TokenKinds tokenKinds;
+    private final Map<String, NonTerminal> nonTerminals = new HashMap<>();
+    private final Map<String, Production> productions = new HashMap<>();
+    private final List<Production> productionsInOrder = new ArrayList<>();
+
+    private NonTerminal getOrCreateNonTerminal(String name) {
+        nonTerminals.computeIfAbsent(name, NonTerminal::new);
+        return nonTerminals.get(name);
+    }
+
+    private Grammar(List<String> lines, TokenKinds tokenKinds) {
+        this.tokenKinds = tokenKinds;
+        for (int idx = 0; idx < lines.size(); idx++) {
+            final var line = lines.get(idx);
+            // 形如 `A -> B ( id intConst ) C;` 的产生式
+            // 先删除分号, 按 -> 切, 再按空格切 body
+            // 产生式体可以为空 (形如 `A -> ;`), 此时 split 需保留末尾的空串, 且要跳过空的符号名
+            final var withoutComma = line.replace(";", "");
+            final var words = withoutComma.split(" -> ", -1);
+            final var headString = words[0];
+            final var bodyStrings = words[1].split(" ");
+
+            final var head = getOrCreateNonTerminal(headString);
+
+            final var body = new ArrayList<Term>();
+            for (final var termName : bodyStrings) {
+                if (termName.isEmpty()) {
+                    continue;
+                }
+                if (tokenKinds.isAllowed(termName)) {
+                    body.add(tokenKinds.fromString(termName));
+                } else {
+                    body.add(getOrCreateNonTerminal(termName));
+                }
+            }
+
+            // idx + 1 是为了让 production 的标号与行号相同, 方便查看
+            final var production = new Production(idx + 1, head, body);
+            productionsInOrder.add(production);
+            productions.put(withoutComma, production);
+        }
+    }
+
+    /**
+     * 读取语法文件
+     *
+     * @param grammarPath 语法文件路径
+     * @param tokenKinds  终结符取自这些类型
+     * @return 文法
+     */
+    public static Grammar load(String grammarPath, TokenKinds tokenKinds) {
+        return new Grammar(FileUtils.readLines(grammarPath), tokenKinds);
+    }
+
+    /**
+     * @return 终结符所属的全部类型
+     */
+    public TokenKinds getTokenKinds() {
+        return tokenKinds;
+    }
+
+    public Map<String, NonTerminal> getNonTerminals() {
+        return Collections.unmodifiableMap(nonTerminals);
+    }
+
+    public Map<String, Production> getProductions() {
+        return Collections.unmodifiableMap(productions);
+    }
+
+    public NonTerminal getNonTerminal(String name) {
+        if (!nonTerminals.containsKey(name)) {
+            throw new RuntimeException("Unknown non-terminal: " + name);
+        }
+
+        return nonTerminals.get(name);
+    }
+
+    public Production getProductionByText(String text) {
+        if (!productions.containsKey(text)) {
+            throw new RuntimeException("Unknown text of production: " + text);
+        }
+
+        return productions.get(text);
+    }
+
+    public Production getBeginProduction() {
+        return productionsInOrder.get(0);
+    }
+
+    public List<Production> getProductionsInOrder() {
+        return Collections.unmodifiableList(productionsInOrder);
+    }
+
+    /**
+     * @return 最大的产生式编号, 以产生式编号为下标的数组长度应为它加一
+     */
+    public int maxProductionIndex() {
+        var maxIndex = 0;
+        for (final var production : productionsInOrder) {
+            maxIndex = Math.max(maxIndex, production.index());
+        }
+        return maxIndex;
+    }
+}
@@ -0,0 +1,334 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * 以不动点迭代计算文法的 NULLABLE, FIRST 与 FOLLOW 集合
+ * <br>
+ * 非终结符与终结符都先编号, FIRST 与 FOLLOW 是以终结符序号为位的 BitSet. 三种集合都写成 "拉取" 的形式:
+ * 每个非终结符的新值只由其它非终结符的当前值算出, 且只写自己的那一项. 因此同一套规则可以用两种方式求到最小不动点:
+ * <ul>
+ *     <li>顺序: 工作表算法, 某个非终结符的集合变化后, 只把依赖它的非终结符重新放回工作表;</li>
+ *     <li>并行: 按轮迭代, 每一轮中所有非终结符以上一轮的结果为输入并行计算, 直到某一轮没有任何变化.</li>
+ * </ul>
+ * 规则都是单调的, 两种方式的结果相同. 与递归的做法不同, 这里正确处理了空产生式: 产生式体中可空的前缀会被跳过,
+ * 可空的后缀会把产生式头的 FOLLOW 传给前面的符号.
+ */
+final class GrammarSets {
+    private final List<TokenKind> terminals;
+    private final List<NonTerminal> nonTerminals;
+    private final Map<TokenKind, Integer> terminalOrdinals = new HashMap<>();
+    private final Map<NonTerminal, Integer> nonTerminalOrdinals = new HashMap<>();
+
+    // 产生式体编码为 int[]: 非负数为非终结符序号, 负数 -(t + 1) 为终结符 t
+    private final int[] heads;
+    private final int[][] bodies;
+    // 以非终结符序号为下标: 以其为头的产生式, 以及其在产生式体中的出现 (产生式下标, 位置)
+    private final List<List<Integer>> productionsByHead = new ArrayList<>();
+    private final List<List<int[]>> occurrences = new ArrayList<>();
+    // 以非终结符序号为下标: 产生式体中用到它的产生式的头, 以及以它为头的产生式体中出现的非终结符
+    private final List<List<Integer>> usedBy = new ArrayList<>();
+    private final List<List<Integer>> uses = new ArrayList<>();
+    private final int start;
+
+    private boolean[] nullable;
+    private BitSet[] first;
+    private BitSet[] follow;
+
+    /**
+     * @param productions  全部产生式, 第一条的头为开始符号
+     * @param terminals    全部终结符
+     * @param nonTerminals 全部非终结符
+     */
+    GrammarSets(List<Production> productions, List<TokenKind> terminals, List<NonTerminal> nonTerminals) {
+        this.terminals = terminals;
+        this.nonTerminals = nonTerminals;
+        for (int i = 0; i < terminals.size(); i++) {
+            terminalOrdinals.put(terminals.get(i), i);
+        }
+        for (int i = 0; i < nonTerminals.size(); i++) {
+            nonTerminalOrdinals.put(nonTerminals.get(i), i);
+            productionsByHead.add(new ArrayList<>());
+            occurrences.add(new ArrayList<>());
+        }
+
+        heads = new int[productions.size()];
+        bodies = new int[productions.size()][];
+        for (int p = 0; p < productions.size(); p++) {
+            final var production = productions.get(p);
+            heads[p] = nonTerminalOrdinal(production.head());
+            productionsByHead.get(heads[p]).add(p);
+
+            final var body = production.body();
+            bodies[p] = new int[body.size()];
+            for (int i = 0; i < body.size(); i++) {
+                if (body.get(i) instanceof TokenKind terminal) {
+                    bodies[p][i] = -(terminalOrdinal(terminal) + 1);
+                } else {
+                    bodies[p][i] = nonTerminalOrdinal((NonTerminal) body.get(i));
+                    occurrences.get(bodies[p][i]).add(new int[]{p, i});
+                }
+            }
+        }
+        start = heads[0];
+
+        for (int i = 0; i < nonTerminals.size(); i++) {
+            final var users = new ArrayList<Integer>();
+            for (final var occurrence : occurrences.get(i)) {
+                if (!users.contains(heads[occurrence[0]])) {
+                    users.add(heads[occurrence[0]]);
+                }
+            }
+            usedBy.add(users);
+
+            final var used = new ArrayList<Integer>();
+            for (final var p : productionsByHead.get(i)) {
+                for (final var symbol : bodies[p]) {
+                    if (symbol >= 0 && !used.contains(symbol)) {
+                        used.add(symbol);
+                    }
+                }
+            }
+            uses.add(used);
+        }
+    }
+
+    /**
+     * 计算三种集合
+     *
+     * @param parallel 是否按轮并行迭代
+     */
+    void compute(boolean parallel) {
+        final var count = nonTerminals.size();
+        nullable = new boolean[count];
+        first = newSets(count);
+        follow = newSets(count);
+
+        // NULLABLE: 依赖于产生式体中出现的非终结符, 变化时影响这些产生式的头
+        fixpoint(parallel, this::computeNullable, usedBy, () -> nullable.clone(), values -> nullable = values);
+        // FIRST: 同上
+        fixpoint(parallel, this::computeFirst, usedBy, () -> copy(first), sets -> first = sets);
+        // FOLLOW: A 的 FOLLOW 变化时, 影响 A 的产生式体中出现的非终结符
+        fixpoint(parallel, this::computeFollow, uses, () -> copy(follow), sets -> follow = sets);
+
+        // 对于没有被使用的非终结符, 沿用原先的约定, 令其 FOLLOW 为 EOF
+        final var eof = terminalOrdinals.get(TokenKind.eof());
+        for (final var set : follow) {
+            if (set.isEmpty() && eof != null) {
+                set.set(eof);
+            }
+        }
+    }
+
+    boolean isNullable(NonTerminal nonTerminal) {
+        return nullable[nonTerminalOrdinal(nonTerminal)];
+    }
+
+    /**
+     * @return 以终结符序号为位的 FIRST 集合, 不应修改
+     */
+    BitSet first(NonTerminal nonTerminal) {
+        return first[nonTerminalOrdinal(nonTerminal)];
+    }
+
+    /**
+     * @return 以终结符序号为位的 FOLLOW 集合, 不应修改
+     */
+    BitSet follow(NonTerminal nonTerminal) {
+        return follow[nonTerminalOrdinal(nonTerminal)];
+    }
+
+    /**
+     * @return FIRST(term), 其中终结符的 FIRST 为其自身, 以 TokenKind 表示
+     */
+    List<TokenKind> firstKinds(Term term) {
+        if (term instanceof TokenKind terminal) {
+            return List.of(terminal);
+        }
+        return toKinds(first((NonTerminal) term));
+    }
+
+    /**
+     * @return 以 TokenKind 表示的 FOLLOW 集合
+     */
+    List<TokenKind> followKinds(NonTerminal nonTerminal) {
+        return toKinds(follow(nonTerminal));
+    }
+
+    TokenKind terminalOf(int ordinal) {
+        return terminals.get(ordinal);
+    }
+
+    int terminalOrdinal(TokenKind terminal) {
+        final var ordinal = terminalOrdinals.get(terminal);
+        if (ordinal == null) {
+            throw new RuntimeException("Unknown terminal: " + terminal);
+        }
+        return ordinal;
+    }
+
+    int nonTerminalOrdinal(NonTerminal nonTerminal) {
+        final var ordinal = nonTerminalOrdinals.get(nonTerminal);
+        if (ordinal == null) {
+            throw new RuntimeException("Unknown non-terminal: " + nonTerminal);
+        }
+        return ordinal;
+    }
+
+    /**
+     * 将 FIRST(body[from..]) 并入 out
+     *
+     * @return 该后缀是否可空
+     */
+    boolean firstOfSequence(int[] body, int from, BitSet out) {
+        for (int i = from; i < body.length; i++) {
+            final var symbol = body[i];
+            if (symbol < 0) {
+                out.set(-symbol - 1);
+                return false;
+            }
+            out.or(first[symbol]);
+            if (!nullable[symbol]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //==================================== 各集合的规则 ========================================//
+
+    @FunctionalInterface
+    private interface Rule<T> {
+        /**
+         * 依据当前的各集合计算某个非终结符的新值并写入 target
+         *
+         * @return 新值是否与原值不同
+         */
+        boolean apply(int nonTerminal, T target);
+    }
+
+    private boolean computeNullable(int nonTerminal, boolean[] values) {
+        if (values[nonTerminal]) {
+            return false;
+        }
+        for (final var p : productionsByHead.get(nonTerminal)) {
+            var all = true;
+            for (final var symbol : bodies[p]) {
+                if (symbol < 0 || !nullable[symbol]) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                values[nonTerminal] = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean computeFirst(int nonTerminal, BitSet[] sets) {
+        final var set = sets[nonTerminal];
+        final var before = set.cardinality();
+        for (final var p : productionsByHead.get(nonTerminal)) {
+            firstOfSequence(bodies[p], 0, set);
+        }
+        return set.cardinality() != before;
+    }
+
+    private boolean computeFollow(int nonTerminal, BitSet[] sets) {
+        final var set = sets[nonTerminal];
+        final var before = set.cardinality();
+        if (nonTerminal == start && terminalOrdinals.containsKey(TokenKind.eof())) {
+            set.set(terminalOrdinals.get(TokenKind.eof()));
+        }
+        for (final var occurrence : occurrences.get(nonTerminal)) {
+            final var p = occurrence[0];
+            if (firstOfSequence(bodies[p], occurrence[1] + 1, set)) {
+                set.or(follow[heads[p]]);
+            }
+        }
+        return set.cardinality() != before;
+    }
+
+    /**
+     * 以工作表或按轮并行的方式求规则的最小不动点
+     *
+     * @param rule       计算规则
+     * @param dependents 某个非终结符变化后需要重新计算的非终结符
+     * @param snapshot   复制当前的全部值
+     * @param publish    以新的全部值替换当前值
+     */
+    private <T> void fixpoint(boolean parallel, Rule<T> rule, List<List<Integer>> dependents,
+                              Supplier<T> snapshot, Consumer<T> publish) {
+        final var count = nonTerminals.size();
+        if (parallel) {
+            // 每一轮都以上一轮的值为输入, 各非终结符只写自己的那一项, 互不干扰
+            var changed = true;
+            while (changed) {
+                final var next = snapshot.get();
+                changed = IntStream.range(0, count).parallel()
+                    .mapToObj(nonTerminal -> rule.apply(nonTerminal, next))
+                    .reduce(false, Boolean::logicalOr);
+                publish.accept(next);
+            }
+            return;
+        }
+
+        // 原地更新的工作表算法
+        final var current = snapshot.get();
+        publish.accept(current);
+        final var queue = new ArrayDeque<Integer>();
+        final var queued = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            queue.add(i);
+            queued[i] = true;
+        }
+        while (!queue.isEmpty()) {
+            final int nonTerminal = queue.poll();
+            queued[nonTerminal] = false;
+            if (rule.apply(nonTerminal, current)) {
+                for (final var dependent : dependents.get(nonTerminal)) {
+                    if (!queued[dependent]) {
+                        queued[dependent] = true;
+                        queue.add(dependent);
+                    }
+                }
+            }
+        }
+    }
+
+    private List<TokenKind> toKinds(BitSet set) {
+        final var result = new ArrayList<TokenKind>(set.cardinality());
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            result.add(terminals.get(i));
+        }
+        return result;
+    }
+
+    private static BitSet[] newSets(int count) {
+        final var sets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            sets[i] = new BitSet();
+        }
+        return sets;
+    }
+
+    private static BitSet[] copy(BitSet[] sets) {
+        final var result = new BitSet[sets.length];
+        for (int i = 0; i < sets.length; i++) {
+            result[i] = (BitSet) sets[i].clone();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,320 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 根据语法文件构造 LALR(1) 分析表, 可代替构造 SLR(1) 分析表的 {@link TableGenerator}
+ * <br>
+ * 状态就是 LR(0) 规范项目集族 (与 TableGenerator 的状态及编号完全相同), 只是规约动作的向前看符号不再取 FOLLOW(A),
+ * 而是以 DeRemer 与 Pennello 的方法在 LR(0) 自动机上精确计算. 记非终结符转移 (p, A) 表示状态 p 经 A 转移:
+ * <ul>
+ *     <li>DR(p, A): 从 goto(p, A) 出发可以直接移入的终结符;</li>
+ *     <li>(p, A) reads (r, C): r = goto(p, A) 且 C 可空, 于是 Read = DR 沿 reads 关系的传递闭包;</li>
+ *     <li>(p, A) includes (p', B): 有 B -> β A γ, γ 可空, 且 p' 经 β 到达 p, 于是 Follow = Read 沿 includes 的传递闭包;</li>
+ *     <li>(q, A -> ω) lookback (p, A): p 经 ω 到达 q. 规约 A -> ω 的向前看集合 LA 即所有 lookback 到的 Follow 之并.</li>
+ * </ul>
+ * 两次传递闭包都用 DeRemer-Pennello 的 digraph 算法 (基于 Tarjan 强连通分量) 在线性时间内完成.
+ * 与规范 LR(1) 相比状态数与 LR(0) 一样少, 与 SLR(1) 相比又不会因 FOLLOW 过大而产生多余的冲突.
+ */
+public class LALRTableGenerator {
+    public LALRTableGenerator() {
+        this(GrammarInfo.standard());
+    }
+
+    /**
+     * @param grammar 要为之构造分析表的文法
+     */
+    public LALRTableGenerator(Grammar grammar) {
+        this.productions = grammar.getProductionsInOrder();
+        this.terminals = new ArrayList<>(new HashSet<>(grammar.getTokenKinds().all().values()));
+        this.nonTerminals = new ArrayList<>(new HashSet<>(grammar.getNonTerminals().values()));
+
+        if (productions.get(0).body().size() != 1) {
+            throw new RuntimeException("The first production in grammar file must like S -> S'");
+        }
+    }
+
+    /**
+     * 主体方法
+     */
+    public void run() {
+        final var terms = new ArrayList<Term>();
+        terms.addAll(nonTerminals);
+        terms.addAll(terminals);
+        automaton = new LR0Automaton(productions, terms);
+        automaton.construct();
+
+        grammarSets = new GrammarSets(productions, terminals, nonTerminals);
+        grammarSets.compute(false);
+
+        collectTransitions();
+        computeLookaheads();
+        genTable();
+    }
+
+    /**
+     * @return 构造出的 LR 表
+     */
+    public LRTable getTable() {
+        return new LRTable(allStatusInIndexOrder, terminals, nonTerminals);
+    }
+
+    private final List<Production> productions;
+    private final List<TokenKind> terminals;
+    private final List<NonTerminal> nonTerminals;
+
+    private LR0Automaton automaton = null;
+    private GrammarSets grammarSets = null;
+    private final List<Status> allStatusInIndexOrder = new ArrayList<>();
+
+    // 非终结符转移 (p, A) 的编号, 以 p * 文法符号数 + A 的序号为下标
+    private int[] transitionIds = null;
+    private final List<int[]> transitions = new ArrayList<>();
+    // 以 (状态, 产生式位置) 为键的规约向前看集合, 以终结符序号为位
+    private final Map<Long, BitSet> lookaheads = new HashMap<>();
+
+    /**
+     * 为所有非终结符转移编号
+     */
+    private void collectTransitions() {
+        transitionIds = new int[automaton.stateCount() * automaton.termCount()];
+        for (int state = 0; state < automaton.stateCount(); state++) {
+            for (final var nonTerminal : nonTerminals) {
+                final var symbol = automaton.ordinalOf(nonTerminal);
+                if (automaton.transition(state, symbol) >= 0) {
+                    transitionIds[state * automaton.termCount() + symbol] = transitions.size();
+                    transitions.add(new int[]{state, symbol});
+                }
+            }
+        }
+    }
+
+    private int transitionId(int state, int symbol) {
+        return transitionIds[state * automaton.termCount() + symbol];
+    }
+
+    /**
+     * 依次计算 DR, Read, Follow 与 LA
+     */
+    private void computeLookaheads() {
+        final var count = transitions.size();
+
+        // DR 与 reads
+        final var directReads = new BitSet[count];
+        final var reads = new ArrayList<List<Integer>>();
+        for (int x = 0; x < count; x++) {
+            final var target = automaton.transition(transitions.get(x)[0], transitions.get(x)[1]);
+            final var direct = new BitSet();
+            final var edges = new ArrayList<Integer>();
+            for (int symbol = 0; symbol < automaton.termCount(); symbol++) {
+                if (automaton.transition(target, symbol) < 0) {
+                    continue;
+                }
+                final var term = automaton.termOf(symbol);
+                if (term instanceof TokenKind terminal) {
+                    direct.set(grammarSets.terminalOrdinal(terminal));
+                } else if (grammarSets.isNullable((NonTerminal) term)) {
+                    edges.add(transitionId(target, symbol));
+                }
+            }
+            directReads[x] = direct;
+            reads.add(edges);
+        }
+
+        // includes 与 lookback: 对每个转移 (p', B) 与 B 的每条产生式, 沿产生式体在自动机上走一遍
+        final var includes = new ArrayList<List<Integer>>();
+        for (int x = 0; x < count; x++) {
+            includes.add(new ArrayList<>());
+        }
+        final var lookback = new HashMap<Long, List<Integer>>();
+        for (int x = 0; x < count; x++) {
+            final var head = automaton.termOf(transitions.get(x)[1]);
+            for (int p = 0; p < productions.size(); p++) {
+                if (productions.get(p).head().equals(head)) {
+                    walk(transitions.get(x)[0], p, x, includes, lookback, null);
+                }
+            }
+        }
+        // 拓广文法的起始产生式 S -> S' 没有对应的转移, 它的向前看符号就是 EOF
+        walk(0, 0, -1, includes, lookback, directReads);
+
+        final var read = digraph(directReads, reads);
+        final var follow = digraph(read, includes);
+
+        for (final var entry : lookback.entrySet()) {
+            final var set = new BitSet();
+            for (final var x : entry.getValue()) {
+                set.or(follow[x]);
+            }
+            lookaheads.put(entry.getKey(), set);
+        }
+    }
+
+    /**
+     * 从状态 state 出发沿产生式 p 的体走到底, 记录途中的 includes 关系与终点的 lookback 关系
+     *
+     * @param from        产生式头的转移 (p', B) 的编号, 为 -1 表示起始产生式
+     * @param directReads 为起始产生式计算时, 需要把 EOF 加入其 DR 的转移所在的数组, 否则为 null
+     */
+    private void walk(int state, int p, int from, List<List<Integer>> includes,
+                      Map<Long, List<Integer>> lookback, BitSet[] directReads) {
+        final var body = productions.get(p).body();
+        var current = state;
+        for (int i = 0; i < body.size(); i++) {
+            final var symbol = automaton.ordinalOf(body.get(i));
+            if (body.get(i) instanceof NonTerminal && restNullable(body, i + 1)) {
+                final var y = transitionId(current, symbol);
+                if (from >= 0) {
+                    includes.get(y).add(from);
+                } else {
+                    directReads[y].set(grammarSets.terminalOrdinal(TokenKind.eof()));
+                }
+            }
+            current = automaton.transition(current, symbol);
+        }
+        if (from >= 0) {
+            lookback.computeIfAbsent(key(current, p), k -> new ArrayList<>()).add(from);
+        }
+    }
+
+    private boolean restNullable(List<Term> body, int from) {
+        for (int i = from; i < body.size(); i++) {
+            if (!(body.get(i) instanceof NonTerminal nonTerminal) || !grammarSets.isNullable(nonTerminal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long key(int state, int production) {
+        return ((long) state << 32) | production;
+    }
+
+    /**
+     * DeRemer-Pennello 的 digraph 算法: 求 F(x) = F'(x) ∪ ∪{F(y) | x R y}, 同一强连通分量中的结点得到相同的结果
+     *
+     * @param base      F'
+     * @param relations R, 以结点编号为下标的后继列表
+     * @return F
+     */
+    private static BitSet[] digraph(BitSet[] base, List<List<Integer>> relations) {
+        final var result = new BitSet[base.length];
+        for (int x = 0; x < base.length; x++) {
+            result[x] = (BitSet) base[x].clone();
+        }
+        final var depth = new int[base.length];
+        final var stack = new ArrayList<Integer>();
+        // 显式的调用栈代替递归, reads 与 includes 关系链很长时也不会栈溢出:
+        // 各层的结点, 进入时在 stack 中的深度, 以及下一条要访问的边
+        final var frames = new int[base.length];
+        final var entered = new int[base.length];
+        final var nextEdge = new int[base.length];
+        for (int root = 0; root < base.length; root++) {
+            if (depth[root] != 0) {
+                continue;
+            }
+            var top = enter(root, 0, depth, stack, frames, entered, nextEdge);
+            while (top > 0) {
+                final var x = frames[top - 1];
+                final var edges = relations.get(x);
+                if (nextEdge[top - 1] < edges.size()) {
+                    final var y = edges.get(nextEdge[top - 1]);
+                    if (depth[y] == 0) {
+                        // 先访问 y, 返回后再次处理这条边
+                        top = enter(y, top, depth, stack, frames, entered, nextEdge);
+                        continue;
+                    }
+                    depth[x] = Math.min(depth[x], depth[y]);
+                    result[x].or(result[y]);
+                    nextEdge[top - 1]++;
+                    continue;
+                }
+
+                if (depth[x] == entered[top - 1]) {
+                    while (true) {
+                        final int node = stack.remove(stack.size() - 1);
+                        depth[node] = Integer.MAX_VALUE;
+                        if (node == x) {
+                            break;
+                        }
+                        result[node] = (BitSet) result[x].clone();
+                    }
+                }
+                top--;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将结点 x 压入 stack 与调用栈
+     *
+     * @return 调用栈新的高度
+     */
+    private static int enter(int x, int top, int[] depth, List<Integer> stack,
+                             int[] frames, int[] entered, int[] nextEdge) {
+        stack.add(x);
+        depth[x] = stack.size();
+        frames[top] = x;
+        entered[top] = stack.size();
+        nextEdge[top] = 0;
+        return top + 1;
+    }
+
+    /**
+     * 构造 LR 分析表 (填充各个 status 中的 action 与 goto)
+     */
+    private void genTable() {
+        for (int idx = 0; idx < automaton.stateCount(); idx++) {
+            allStatusInIndexOrder.add(Status.create(idx));
+        }
+
+        for (int state = 0; state < automaton.stateCount(); state++) {
+            final var status = allStatusInIndexOrder.get(state);
+
+            // 移入与 GOTO 直接来自 LR(0) 自动机的转移
+            for (int symbol = 0; symbol < automaton.termCount(); symbol++) {
+                final var target = automaton.transition(state, symbol);
+                if (target < 0) {
+                    continue;
+                }
+                final var term = automaton.termOf(symbol);
+                if (term instanceof TokenKind terminal) {
+                    status.setAction(terminal, Action.shift(allStatusInIndexOrder.get(target)));
+                } else {
+                    status.setGoto((NonTerminal) term, allStatusInIndexOrder.get(target));
+                }
+            }
+
+            // 点在末尾的项目: 起始产生式接受, 其它产生式按 LA 规约
+            final var closure = automaton.closure(state);
+            for (int item = closure.nextSetBit(0); item >= 0; item = closure.nextSetBit(item + 1)) {
+                if (automaton.afterDotOf(item) >= 0) {
+                    continue;
+                }
+                final var p = automaton.productionOf(item);
+                if (p == 0) {
+                    status.setAction(TokenKind.eof(), Action.accept());
+                    continue;
+                }
+                final var lookahead = lookaheads.get(key(state, p));
+                if (lookahead == null) {
+                    continue;
+                }
+                for (int t = lookahead.nextSetBit(0); t >= 0; t = lookahead.nextSetBit(t + 1)) {
+                    status.setAction(grammarSets.terminalOf(t), Action.reduce(productions.get(p)));
+                }
+            }
+        }
+    }
+
+    // 我们在 Status.setAction/setGoto 中检查规约-规约冲突与移入-规约冲突
+    // 如果有冲突, 它们会抛出 RuntimeException
+}
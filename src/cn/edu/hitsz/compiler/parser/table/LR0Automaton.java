@@ -0,0 +1,410 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 以整数编码项目的 LR(0) 规范项目集族构造
+ * <br>
+ * 项目 {@code A -> α . β} 编码为 {@code itemBase[产生式] + 点的位置}, 同一产生式的各个项目编号连续, 项目集则是一个 BitSet.
+ * 与逐个比较 {@code Set<Item>} 的朴素构造相比, 这里做了以下几件事:
+ * <ul>
+ *     <li>预先为每个非终结符 B 求出 CLOSURE 中由 B 引入的全部 "点在开头" 的项目, 求闭包时只需对核中每个项目并上一个 BitSet;</li>
+ *     <li>项目集以核 (点不在开头的项目, 以及初始项目) 判等与哈希: 闭包由核唯一决定, 而闭包新增的项目点都在开头,
+ *     所以两个项目集相等当且仅当它们的核相等;</li>
+ *     <li>一个状态关于所有文法符号的 GOTO 在对其项目的一次遍历中同时求出.</li>
+ * </ul>
+ * 状态按与原先相同的 BFS 顺序 (按给定的文法符号顺序依次求后继) 编号, 因此构造出的分析表与原先完全一致.
+ * 对于状态很多的大文法, 可以用 {@link #construct(ForkJoinPool)} 并行构造, 编号仍与顺序构造相同.
+ */
+final class LR0Automaton {
+    private final List<Production> productions;
+    private final List<Term> terms;
+    private final Map<Term, Integer> termOrdinals = new HashMap<>();
+
+    // 以项目编号为下标: 所属产生式在 productions 中的位置, 点的位置, 点后文法符号的序号 (点在末尾时为 -1)
+    private final int[] itemProduction;
+    private final int[] itemDot;
+    private final int[] itemAfterDot;
+    // 以产生式位置为下标: 该产生式第一个项目的编号
+    private final int[] itemBase;
+    // 以文法符号序号为下标: 该符号为非终结符时, 闭包中由它引入的全部项目
+    private final BitSet[] closureOf;
+
+    // 各状态的核, 闭包, 以及以文法符号序号为下标的后继状态 (无后继时为 -1)
+    private final List<int[]> kernels = new ArrayList<>();
+    private final List<BitSet> closures = new ArrayList<>();
+    private final List<int[]> transitions = new ArrayList<>();
+
+    /**
+     * @param productions 文法的全部产生式, 第一条为拓广文法的起始产生式
+     * @param terms       全部文法符号, 其顺序决定状态的编号顺序
+     */
+    LR0Automaton(List<Production> productions, List<Term> terms) {
+        this.productions = productions;
+        this.terms = terms;
+        for (int i = 0; i < terms.size(); i++) {
+            termOrdinals.put(terms.get(i), i);
+        }
+
+        itemBase = new int[productions.size()];
+        var itemCount = 0;
+        for (int p = 0; p < productions.size(); p++) {
+            itemBase[p] = itemCount;
+            itemCount += productions.get(p).body().size() + 1;
+        }
+
+        itemProduction = new int[itemCount];
+        itemDot = new int[itemCount];
+        itemAfterDot = new int[itemCount];
+        for (int p = 0; p < productions.size(); p++) {
+            final var body = productions.get(p).body();
+            for (int dot = 0; dot <= body.size(); dot++) {
+                final var item = itemBase[p] + dot;
+                itemProduction[item] = p;
+                itemDot[item] = dot;
+                itemAfterDot[item] = dot < body.size() ? ordinalOf(body.get(dot)) : -1;
+            }
+        }
+
+        closureOf = computeClosures();
+    }
+
+    /**
+     * 从初始项目 {@code S -> . S'} 出发构造全部状态
+     */
+    void construct() {
+        final var ids = new HashMap<Kernel, Integer>();
+        final var initKernel = new int[]{itemBase[0]};
+        ids.put(new Kernel(initKernel), 0);
+        addState(initKernel, closureOf(initKernel));
+
+        // 状态列表本身就是 BFS 的队列
+        final var buckets = new int[terms.size()][];
+        final var bucketSizes = new int[terms.size()];
+        for (int state = 0; state < kernels.size(); state++) {
+            final var successors = successorKernels(closures.get(state), buckets, bucketSizes);
+            final var row = transitions.get(state);
+            for (int symbol = 0; symbol < terms.size(); symbol++) {
+                final var kernel = successors[symbol];
+                if (kernel == null) {
+                    continue;
+                }
+                final var key = new Kernel(kernel);
+                var target = ids.get(key);
+                if (target == null) {
+                    target = kernels.size();
+                    ids.put(key, target);
+                    addState(kernel, closureOf(kernel));
+                }
+                row[symbol] = target;
+            }
+        }
+    }
+
+    /**
+     * 在给定的 ForkJoinPool 中并行地构造全部状态, 结果 (包括状态编号) 与 {@link #construct()} 完全相同
+     * <br>
+     * 按 BFS 的层推进: 每一层的各个项目集在线程池中分治地求闭包与全部后继的核, 新出现的核经由并发的注册表
+     * ({@code ConcurrentHashMap.putIfAbsent}) 去重后成为下一层. 此时各状态只以对象相互引用, 还没有编号;
+     * 全部状态都找到之后, 再从初始状态按与顺序构造相同的 BFS 顺序遍历一次, 依次编号.
+     *
+     * @param pool 线程池
+     */
+    void construct(ForkJoinPool pool) {
+        final var registry = new ConcurrentHashMap<Kernel, Node>();
+        final var initKernel = new int[]{itemBase[0]};
+        final var init = new Node(initKernel);
+        registry.put(new Kernel(initKernel), init);
+
+        var frontier = List.of(init);
+        while (!frontier.isEmpty()) {
+            final var discovered = new ConcurrentLinkedQueue<Node>();
+            pool.invoke(new Expand(frontier, 0, frontier.size(), registry, discovered));
+            frontier = new ArrayList<>(discovered);
+        }
+
+        // 按顺序构造的 BFS 顺序编号, 状态列表本身就是队列
+        final var order = new ArrayList<Node>();
+        init.id = 0;
+        order.add(init);
+        for (int state = 0; state < order.size(); state++) {
+            final var node = order.get(state);
+            addState(node.kernel, node.closure);
+            final var row = transitions.get(state);
+            for (int symbol = 0; symbol < terms.size(); symbol++) {
+                final var successor = node.successors[symbol];
+                if (successor == null) {
+                    continue;
+                }
+                if (successor.id < 0) {
+                    successor.id = order.size();
+                    order.add(successor);
+                }
+                row[symbol] = successor.id;
+            }
+        }
+    }
+
+    /**
+     * @return 状态个数
+     */
+    int stateCount() {
+        return kernels.size();
+    }
+
+    /**
+     * @param state 状态编号
+     * @return 该状态的项目集 (闭包)
+     */
+    BitSet closure(int state) {
+        return closures.get(state);
+    }
+
+    /**
+     * @param state 状态编号
+     * @return 该状态的核
+     */
+    int[] kernel(int state) {
+        return kernels.get(state);
+    }
+
+    /**
+     * @param state  状态编号
+     * @param symbol 文法符号的序号
+     * @return GOTO(state, symbol), 不存在时为 -1
+     */
+    int transition(int state, int symbol) {
+        return transitions.get(state)[symbol];
+    }
+
+    int ordinalOf(Term term) {
+        final var ordinal = termOrdinals.get(term);
+        if (ordinal == null) {
+            throw new RuntimeException("Unknown term: " + term);
+        }
+        return ordinal;
+    }
+
+    Term termOf(int ordinal) {
+        return terms.get(ordinal);
+    }
+
+    int termCount() {
+        return terms.size();
+    }
+
+    int itemCount() {
+        return itemProduction.length;
+    }
+
+    /**
+     * @return 项目所属产生式在产生式列表中的位置
+     */
+    int productionOf(int item) {
+        return itemProduction[item];
+    }
+
+    int dotOf(int item) {
+        return itemDot[item];
+    }
+
+    /**
+     * @return 项目点后文法符号的序号, 点在末尾时为 -1
+     */
+    int afterDotOf(int item) {
+        return itemAfterDot[item];
+    }
+
+    /**
+     * @return 产生式 (在产生式列表中的位置) 的第一个项目
+     */
+    int firstItemOf(int production) {
+        return itemBase[production];
+    }
+
+    private void addState(int[] kernel, BitSet closure) {
+        final var row = new int[terms.size()];
+        Arrays.fill(row, -1);
+        kernels.add(kernel);
+        closures.add(closure);
+        transitions.add(row);
+    }
+
+    private BitSet closureOf(int[] kernel) {
+        final var closure = new BitSet(itemCount());
+        for (final var item : kernel) {
+            closure.set(item);
+            final var symbol = itemAfterDot[item];
+            if (symbol >= 0 && closureOf[symbol] != null) {
+                closure.or(closureOf[symbol]);
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * 一次遍历项目集, 把每个项目的后继项按点后的符号分桶, 每个桶就是该符号的后继项目集的核
+     *
+     * @param buckets     以文法符号序号为下标的桶, 可在多次调用间复用
+     * @param bucketSizes 各桶的大小, 可在多次调用间复用
+     * @return 以文法符号序号为下标的后继核, 无后继时为 null
+     */
+    private int[][] successorKernels(BitSet closure, int[][] buckets, int[] bucketSizes) {
+        Arrays.fill(bucketSizes, 0);
+        for (int item = closure.nextSetBit(0); item >= 0; item = closure.nextSetBit(item + 1)) {
+            final var symbol = itemAfterDot[item];
+            if (symbol < 0) {
+                continue;
+            }
+            if (buckets[symbol] == null || buckets[symbol].length == bucketSizes[symbol]) {
+                buckets[symbol] = buckets[symbol] == null ? new int[4] : Arrays.copyOf(buckets[symbol], bucketSizes[symbol] * 2);
+            }
+            // 按项目编号升序遍历, 故桶内的核也是升序的
+            buckets[symbol][bucketSizes[symbol]++] = item + 1;
+        }
+
+        final var result = new int[terms.size()][];
+        for (int symbol = 0; symbol < terms.size(); symbol++) {
+            if (bucketSizes[symbol] > 0) {
+                result[symbol] = Arrays.copyOf(buckets[symbol], bucketSizes[symbol]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 对每个非终结符 B, 求出 CLOSURE({X -> . B}) 中点在开头的全部项目, 即 B 经最左推导能到达的所有产生式的首项目
+     */
+    private BitSet[] computeClosures() {
+        // 以非终结符序号为下标的产生式位置列表
+        final var byHead = new ArrayList<List<Integer>>();
+        for (int i = 0; i < terms.size(); i++) {
+            byHead.add(new ArrayList<>());
+        }
+        for (int p = 0; p < productions.size(); p++) {
+            byHead.get(ordinalOf(productions.get(p).head())).add(p);
+        }
+
+        final var result = new BitSet[terms.size()];
+        for (int symbol = 0; symbol < terms.size(); symbol++) {
+            if (!(terms.get(symbol) instanceof NonTerminal)) {
+                continue;
+            }
+
+            final var closure = new BitSet(itemCount());
+            final var visited = new BitSet(terms.size());
+            final var stack = new ArrayList<Integer>();
+            stack.add(symbol);
+            visited.set(symbol);
+            while (!stack.isEmpty()) {
+                final var head = stack.remove(stack.size() - 1);
+                for (final var p : byHead.get(head)) {
+                    final var first = itemBase[p];
+                    closure.set(first);
+                    final var next = itemAfterDot[first];
+                    if (next >= 0 && terms.get(next) instanceof NonTerminal && !visited.get(next)) {
+                        visited.set(next);
+                        stack.add(next);
+                    }
+                }
+            }
+            result[symbol] = closure;
+        }
+        return result;
+    }
+
+    /**
+     * 并行构造时的状态, 编号在全部状态找到之后才确定
+     */
+    private static final class Node {
+        final int[] kernel;
+        BitSet closure = null;
+        Node[] successors = null;
+        int id = -1;
+
+        Node(int[] kernel) {
+            this.kernel = kernel;
+        }
+    }
+
+    /**
+     * 扩展 BFS 一层中 [from, to) 范围内的状态, 范围较大时一分为二
+     */
+    // RecursiveAction 可序列化, 但任务只在构造过程中使用, 从不序列化
+    @SuppressWarnings("serial")
+    private final class Expand extends RecursiveAction {
+        private static final int THRESHOLD = 8;
+
+        private final List<Node> nodes;
+        private final int from;
+        private final int to;
+        private final ConcurrentHashMap<Kernel, Node> registry;
+        private final ConcurrentLinkedQueue<Node> discovered;
+
+        Expand(List<Node> nodes, int from, int to, ConcurrentHashMap<Kernel, Node> registry,
+               ConcurrentLinkedQueue<Node> discovered) {
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.registry = registry;
+            this.discovered = discovered;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > THRESHOLD) {
+                final var middle = (from + to) >>> 1;
+                invokeAll(new Expand(nodes, from, middle, registry, discovered),
+                    new Expand(nodes, middle, to, registry, discovered));
+                return;
+            }
+
+            final var buckets = new int[terms.size()][];
+            final var bucketSizes = new int[terms.size()];
+            for (int i = from; i < to; i++) {
+                final var node = nodes.get(i);
+                node.closure = closureOf(node.kernel);
+                final var kernels = successorKernels(node.closure, buckets, bucketSizes);
+                final var successors = new Node[terms.size()];
+                for (int symbol = 0; symbol < terms.size(); symbol++) {
+                    if (kernels[symbol] == null) {
+                        continue;
+                    }
+                    final var created = new Node(kernels[symbol]);
+                    final var existing = registry.putIfAbsent(new Kernel(kernels[symbol]), created);
+                    if (existing == null) {
+                        discovered.add(created);
+                        successors[symbol] = created;
+                    } else {
+                        successors[symbol] = existing;
+                    }
+                }
+                node.successors = successors;
+            }
+        }
+    }
+
+    /**
+     * 以内容判等的核, 用作状态查找的键
+     */
+    private record Kernel(int[] items) {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Kernel kernel && Arrays.equals(items, kernel.items);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(items);
+        }
+    }
+}
@@ -42,6 +42,28 @@ public class LRTable {
         return statusInIndexOrder.get(0);
     }
 
+    /**
+     * 将该表编译为以整数编码的稠密表, 供驱动程序在热路径上查表. 编译结果会被缓存, 多次调用返回同一对象.
+     *
+     * @return 编译后的分析表
+     */
+    public synchronized CompiledLRTable compile() {
+        if (compiled == null) {
+            compiled = new DenseLRTable(this);
+        }
+        return compiled;
+    }
+
+    /**
+     * 将该表编译为以行偏移压缩的表, 适用于状态数很多, 稠密表放不进缓存的大文法
+     *
+     * @return 压缩后的分析表
+     * @see CompressedLRTable
+     */
+    public CompressedLRTable compress() {
+        return new CompressedLRTable(this);
+    }
+
     public void dumpTable(String path) {
         final var text = new StringBuilder();
         // table head
@@ -76,13 +98,33 @@ public class LRTable {
         }
     }
 
+    /**
+     * 为该表设置已经编译好的形式, 供能直接得到编码后矩阵的加载器使用
+     */
+    synchronized void setCompiled(CompiledLRTable compiled) {
+        this.compiled = compiled;
+    }
+
     LRTable(List<Status> statusInIndexOrder, List<TokenKind> terminals, List<NonTerminal> nonTerminals) {
         this.statusInIndexOrder = statusInIndexOrder;
         this.terminals = terminals;
         this.nonTerminals = nonTerminals;
     }
 
+    List<Status> getStatusInIndexOrder() {
+        return statusInIndexOrder;
+    }
+
+    List<TokenKind> getTerminals() {
+        return terminals;
+    }
+
+    List<NonTerminal> getNonTerminals() {
+        return nonTerminals;
+    }
+
     private final List<Status> statusInIndexOrder;
     private final List<TokenKind> terminals;
     private final List<NonTerminal> nonTerminals;
+    private CompiledLRTable compiled = null;
 }
@@ -0,0 +1,149 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+import cn.edu.hitsz.compiler.utils.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * 磁盘上的 LR 分析表缓存, 可在 Main 中代替 {@link TableLoader}, {@link TableGenerator} 与 {@link LALRTableGenerator}
+ * <br>
+ * 缓存以二进制格式 ({@link BinaryTableFormat}) 保存, 文件名为语法文件与码点文件 (以及 CSV 分析表, 若从 CSV 读取) 内容的 SHA-256.
+ * 输入不变时直接映射缓存文件, 修改任何一个输入都会得到新的文件名, 旧的缓存自然失效, 不需要比较时间戳.
+ * 缓存文件损坏或与当前文法不一致时会重新构造并覆盖.
+ */
+public class TableCache {
+    /**
+     * TableGenerator 与 LALRTableGenerator 的版本, 生成算法的结果有变化时递增, 以免继续使用旧算法生成的缓存
+     */
+    private static final int GENERATOR_VERSION = 2;
+
+    private final String directory;
+    private final Grammar grammar;
+    // 文法的来源文件, 其内容决定缓存的文件名
+    private final String grammarPath;
+    private final String codingMapPath;
+
+    /**
+     * 缓存默认的语法文件与码点文件的分析表
+     *
+     * @param directory 缓存目录, 不存在时会自动创建
+     */
+    public TableCache(String directory) {
+        this(directory, GrammarInfo.standard(), FilePathConfig.GRAMMAR_PATH, FilePathConfig.CODING_MAP_PATH);
+    }
+
+    /**
+     * @param directory     缓存目录, 不存在时会自动创建
+     * @param grammar       文法
+     * @param grammarPath   读取该文法的语法文件
+     * @param codingMapPath 读取该文法的终结符的码点文件
+     */
+    public TableCache(String directory, Grammar grammar, String grammarPath, String codingMapPath) {
+        this.directory = directory;
+        this.grammar = grammar;
+        this.grammarPath = grammarPath;
+        this.codingMapPath = codingMapPath;
+    }
+
+    /**
+     * 获得由 {@link TableGenerator} 从语法文件构造的分析表
+     *
+     * @return LRTable
+     */
+    public LRTable generate() {
+        final var key = hash(grammarPath, codingMapPath);
+        return getOrCreate("generated-v%d-%s".formatted(GENERATOR_VERSION, key), () -> {
+            final var generator = new TableGenerator(grammar);
+            generator.build();
+            return generator.getTable();
+        });
+    }
+
+    /**
+     * 获得由 {@link LALRTableGenerator} 从语法文件构造的分析表
+     *
+     * @return LRTable
+     */
+    public LRTable generateLALR() {
+        final var key = hash(grammarPath, codingMapPath);
+        return getOrCreate("lalr-v%d-%s".formatted(GENERATOR_VERSION, key), () -> {
+            final var generator = new LALRTableGenerator(grammar);
+            generator.run();
+            return generator.getTable();
+        });
+    }
+
+    /**
+     * 获得从 CSV 格式读取的分析表
+     *
+     * @param csvPath CSV 分析表路径
+     * @return LRTable
+     */
+    public LRTable load(String csvPath) {
+        final var key = hash(grammarPath, codingMapPath, csvPath);
+        return getOrCreate("csv-" + key, () -> new TableLoader(grammar).load(csvPath));
+    }
+
+    private LRTable getOrCreate(String name, Supplier<LRTable> builder) {
+        final var path = Paths.get(directory, name + ".bin");
+        if (Files.exists(path)) {
+            try {
+                return BinaryTableFormat.load(path.toString(), grammar);
+            } catch (RuntimeException e) {
+                // 缓存损坏 (例如写入时被中断), 重新构造即可
+                System.err.println("Ignore broken table cache " + path + ": " + e.getMessage());
+            }
+        }
+
+        final var table = builder.get();
+        store(table, path);
+        return table;
+    }
+
+    /**
+     * 先写入临时文件再原子地移动到目标位置, 以免并发运行的其它进程读到写了一半的缓存
+     */
+    private void store(LRTable table, Path path) {
+        try {
+            Files.createDirectories(path.getParent());
+            final var temp = Files.createTempFile(path.getParent(), "table", ".tmp");
+            try {
+                BinaryTableFormat.write(table, temp.toString());
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on table cache " + path, e);
+        }
+    }
+
+    /**
+     * @param paths 各输入文件路径
+     * @return 各文件内容依次拼接后的 SHA-256, 以十六进制表示
+     */
+    private static String hash(String... paths) {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            for (final var path : paths) {
+                final var bytes = FileUtils.readBytes(path);
+                // 先写入长度, 以免不同的切分方式拼出相同的字节串
+                digest.update(Integer.toString(bytes.length).getBytes());
+                digest.update((byte) 0);
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package cn.edu.hitsz.compiler.parser.table;
+
+import cn.edu.hitsz.compiler.lexer.TokenKind;
+import cn.edu.hitsz.compiler.utils.FilePathConfig;
+
+/**
+ * 将 LR 分析表转换为二进制格式 ({@link BinaryTableFormat}) 的命令
+ * <br>
+ * 用法: {@code TableConverter [CSV 分析表路径 | --generate | --lalr] [输出路径]}
+ * <ul>
+ *     <li>默认读取 {@link FilePathConfig#LR1_TABLE_PATH};</li>
+ *     <li>{@code --generate} 表示不读取 CSV, 而用 {@link TableGenerator} 从语法文件构造 SLR(1) 分析表;</li>
+ *     <li>{@code --lalr} 表示用 {@link LALRTableGenerator} 从语法文件构造 LALR(1) 分析表;</li>
+ *     <li>默认输出到 {@link FilePathConfig#LR1_TABLE_BIN_PATH}.</li>
+ * </ul>
+ */
+public class TableConverter {
+    public static void main(String[] args) {
+        final var input = args.length > 0 ? args[0] : FilePathConfig.LR1_TABLE_PATH;
+        final var output = args.length > 1 ? args[1] : FilePathConfig.LR1_TABLE_BIN_PATH;
+
+        TokenKind.loadTokenKinds();
+        final LRTable table;
+        if (input.equals("--generate")) {
+            final var generator = new TableGenerator();
+            generator.run();
+            table = generator.getTable();
+        } else if (input.equals("--lalr")) {
+            final var generator = new LALRTableGenerator();
+            generator.run();
+            table = generator.getTable();
+        } else {
+            table = new TableLoader().load(input);
+        }
+
+        BinaryTableFormat.write(table, output);
+        System.out.println("Table written to " + output);
+    }
+}
@@ -12,6 +12,19 @@ import java.util.Map;
  * 读取 "编译工作台" 生成的语法分析表并将其转换为 LRTable 结构, 你不应该修改此文件
  */
 public class TableLoader {
+    private final Grammar grammar;
+
+    public TableLoader() {
+        this(GrammarInfo.standard());
+    }
+
+    /**
+     * @param grammar 分析表所属的文法, 表中的终结符与产生式从中查找
+     */
+    public TableLoader(Grammar grammar) {
+        this.grammar = grammar;
+    }
+
     /**
      * 读取分析表
      *
@@ -34,7 +47,7 @@ public class TableLoader {
         final var symbolHeader = csv.get(1);
         final var terminals = symbolHeader
             .subList(actionColumnBegin, actionColumnEnd).stream()
-            .map(TokenKind::fromString).toList();
+            .map(grammar.getTokenKinds()::fromString).toList();
         final var nonTerminals = symbolHeader
             .subList(gotoColumnBegin, gotoColumnEnd).stream()
             .map(NonTerminal::new).toList();
@@ -61,8 +74,11 @@ public class TableLoader {
                 final var relativeIndex = idx - actionColumnBegin;
                 final var terminal = terminals.get(relativeIndex);
 
+                // 空格子即错误动作, Status 查不到时本就返回错误动作, 不必为其占用 Map 的条目
                 final var action = parseAction(row.get(idx));
-                status.setAction(terminal, action);
+                if (action.getKind() != Action.ActionKind.Error) {
+                    status.setAction(terminal, action);
+                }
             }
 
             // 处理 GOTO 表
@@ -71,7 +87,9 @@ public class TableLoader {
                 final var nonTerminal = nonTerminals.get(relativeIndex);
 
                 final var goto_ = parseGoto(row.get(idx));
-                status.setGoto(nonTerminal, goto_);
+                if (!goto_.isError()) {
+                    status.setGoto(nonTerminal, goto_);
+                }
             }
         }
 
@@ -108,7 +126,7 @@ public class TableLoader {
             }
 
             case "reduce" -> {
-                final var production = GrammarInfo.getProductionByText(words[1]);
+                final var production = grammar.getProductionByText(words[1]);
                 yield Action.reduce(production);
             }
 
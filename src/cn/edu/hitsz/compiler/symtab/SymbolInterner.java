@@ -0,0 +1,135 @@
+package cn.edu.hitsz.compiler.symtab;
+
+import java.util.Arrays;
+
+/**
+ * 标识符驻留表: 为每个不同的标识符分配一个从 0 开始的稠密编号, 并只保存一份其字符串
+ * <br>
+ * 采用线性探测的开放定址哈希表, 可以直接以字符数组中的一段查找, 已出现过的标识符不必先构造出字符串.
+ * 哈希值与 {@link String#hashCode()} 相同, 以字符串查找时可复用字符串缓存的哈希值.
+ */
+final class SymbolInterner {
+    // 以编号为下标的文本及其哈希值
+    private String[] texts = new String[64];
+    private int[] hashes = new int[64];
+    private int size = 0;
+    // 哈希槽, 存放编号 + 1, 0 表示空槽; 长度总为 2 的幂
+    private int[] slots = new int[128];
+
+    /**
+     * @return 得到该字符数组片段对应的编号, 首次出现时为其分配新编号
+     */
+    int intern(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        final var mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            final var id = slots[slot] - 1;
+            if (id < 0) {
+                return insert(slot, hash, new String(chars, offset, length));
+            }
+            if (hashes[id] == hash && regionEquals(texts[id], chars, offset, length)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @return 得到该字符串对应的编号, 首次出现时为其分配新编号
+     */
+    int intern(String text) {
+        final var hash = text.hashCode();
+        final var slot = findSlot(text, hash);
+        final var id = slots[slot] - 1;
+        return id >= 0 ? id : insert(slot, hash, text);
+    }
+
+    /**
+     * @return 该字符串对应的编号, 未出现过时返回 -1
+     */
+    int find(String text) {
+        return slots[findSlot(text, text.hashCode())] - 1;
+    }
+
+    String getText(int id) {
+        return texts[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 删去编号不小于 newSize 的标识符, 即撤销最近的若干次分配
+     * <br>
+     * 线性探测时, 先分配的标识符的探测序列不会经过后分配的标识符所在的槽 (扩容时也按编号顺序重新放入),
+     * 因此按编号从大到小清空它们的槽不会打断其余标识符的探测序列.
+     */
+    void truncate(int newSize) {
+        while (size > newSize) {
+            final var id = size - 1;
+            slots[findSlot(texts[id], hashes[id])] = 0;
+            texts[id] = null;
+            size--;
+        }
+    }
+
+    private int findSlot(String text, int hash) {
+        final var mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            final var id = slots[slot] - 1;
+            if (id < 0 || (hashes[id] == hash && texts[id].equals(text))) {
+                return slot;
+            }
+        }
+    }
+
+    private int insert(int slot, int hash, String text) {
+        if (size == texts.length) {
+            texts = Arrays.copyOf(texts, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+
+        final var id = size++;
+        texts[id] = text;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+
+        // 装载因子超过 1/2 时扩容
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        final var mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean regionEquals(String text, char[] chars, int offset, int length) {
+        if (text.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -4,8 +4,7 @@ import cn.edu.hitsz.compiler.utils.FileUtils;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 
 /**
  * 符号表
@@ -13,9 +12,15 @@ import java.util.Map;
  * 由于源语言比较简易, 加之 Java 中具有非常好用的通用数据结构类型, 本项目其实并不一定需要一个集中的 "符号表" 来存储源语言中的
  * <b>所有符号的所有信息</b>. 但为了切合理论课程教学, 提高实验实践技能的通用性, 我们按照一般编译器项目中符号表的设计设计了该符号表.
  * 其在代码中的作用可能并不明显, 但我们希望同学们可以借此体验符号表的设计思想.
+ * <br>
+ * 每个符号在加入符号表时会得到一个从 0 开始的稠密编号. 词法分析时就以编号标记标识符, 之后的语义分析, IR 与汇编生成
+ * 都以编号而不是文本来查找和比较符号, 符号的文本在整个编译过程中也只有一份.
  */
 public class SymbolTable {
-    private final Map<String, SymbolTableEntry> symbolTable = new HashMap<>();
+    private final SymbolInterner names = new SymbolInterner();
+    // 以符号编号为下标的条目
+    private final List<SymbolTableEntry> entries = new ArrayList<>();
+
     /**
      * 获取符号表中已有的条目
      *
@@ -24,10 +29,25 @@ public class SymbolTable {
      * @throws RuntimeException 该符号在表中不存在
      */
     public SymbolTableEntry get(String text) {
-        if (!has(text)) {
+        final var id = names.find(text);
+        if (id < 0) {
+            throw new RuntimeException("No Symbol");
+        }
+        return entries.get(id);
+    }
+
+    /**
+     * 获取符号表中已有的条目
+     *
+     * @param id 符号的编号
+     * @return 该符号在符号表中的条目
+     * @throws RuntimeException 该符号在表中不存在
+     */
+    public SymbolTableEntry get(int id) {
+        if (!has(id)) {
             throw new RuntimeException("No Symbol");
         }
-        return symbolTable.get(text);
+        return entries.get(id);
     }
 
     /**
@@ -41,7 +61,31 @@ public class SymbolTable {
         if (has(text)) {
             throw new RuntimeException("Already Have Symbol");
         }
-        return symbolTable.put(text, new SymbolTableEntry(text));
+        return entries.get(intern(text));
+    }
+
+    /**
+     * 获得符号的编号, 符号不在表中时将其加入
+     *
+     * @param text 符号的文本表示
+     * @return 该符号的编号
+     */
+    public int intern(String text) {
+        return addEntryIfAbsent(names.intern(text));
+    }
+
+    /**
+     * 获得字符数组中一段文本所表示的符号的编号, 符号不在表中时将其加入
+     * <br>
+     * 符号已在表中时不会构造新的字符串, 供词法分析直接在缓冲区上调用
+     *
+     * @param chars  字符数组
+     * @param offset 文本的起始位置
+     * @param length 文本的长度
+     * @return 该符号的编号
+     */
+    public int intern(char[] chars, int offset, int length) {
+        return addEntryIfAbsent(names.intern(chars, offset, length));
     }
 
     /**
@@ -51,7 +95,41 @@ public class SymbolTable {
      * @return 该符号的条目是否位于符号表中
      */
     public boolean has(String text) {
-        return symbolTable.containsKey(text);
+        return names.find(text) >= 0;
+    }
+
+    /**
+     * 判断符号表中有无条目
+     *
+     * @param id 待判断符号的编号
+     * @return 该编号的条目是否位于符号表中
+     */
+    public boolean has(int id) {
+        return 0 <= id && id < entries.size();
+    }
+
+    /**
+     * @return 当前的符号数, 可交给 {@link #rollback(int)} 撤销此后加入的符号
+     */
+    public int mark() {
+        return entries.size();
+    }
+
+    /**
+     * 删去 {@link #mark()} 之后加入的全部符号, 例如在一段源代码的词法分析出错时撤销其中已经加入的标识符
+     *
+     * @param mark 先前 {@link #mark()} 的返回值
+     */
+    public void rollback(int mark) {
+        names.truncate(mark);
+        entries.subList(mark, entries.size()).clear();
+    }
+
+    private int addEntryIfAbsent(int id) {
+        if (id == entries.size()) {
+            entries.add(new SymbolTableEntry(id, names.getText(id)));
+        }
+        return id;
     }
 
     /**
@@ -59,8 +137,8 @@ public class SymbolTable {
      *
      * @return 符号表的所有条目
      */
-    private Map<String, SymbolTableEntry> getAllEntries() {
-        return symbolTable;
+    private List<SymbolTableEntry> getAllEntries() {
+        return entries;
     }
 
     /**
@@ -69,7 +147,14 @@ public class SymbolTable {
      * @param path 输出文件路径
      */
     public void dumpTable(String path) {
-        final var entriesInOrder = new ArrayList<>(getAllEntries().values());
+        FileUtils.writeLines(path, formatTable());
+    }
+
+    /**
+     * @return 按文本排序的各条目, 每行一个, 格式与 {@link #dumpTable(String)} 的输出相同
+     */
+    public List<String> formatTable() {
+        final var entriesInOrder = new ArrayList<>(getAllEntries());
         entriesInOrder.sort(Comparator.comparing(SymbolTableEntry::getText));
 
         final var lines = new ArrayList<String>();
@@ -77,8 +162,6 @@ public class SymbolTable {
             // null in %s will be "null"
             lines.add("(%s, %s)".formatted(entry.getText(), entry.getType()));
         }
-
-        FileUtils.writeLines(path, lines);
+        return lines;
     }
 }
-
@@ -5,13 +5,22 @@ package cn.edu.hitsz.compiler.symtab;
  */
 public class SymbolTableEntry {
     /**
+     * @param id   符号在符号表中的编号
      * @param text 符号的文本表示. 对于标识符符号, 该参数应该为标识符文本.
      */
-    public SymbolTableEntry(String text) {
+    public SymbolTableEntry(int id, String text) {
+        this.id = id;
         this.text = text;
         this.type = null;
     }
 
+    /**
+     * @return 符号在符号表中的编号
+     */
+    public int getId() {
+        return id;
+    }
+
     /**
      * @return 符号的文本表示
      */
@@ -40,6 +49,14 @@ public class SymbolTableEntry {
         this.type = type;
     }
 
+    /**
+     * 撤销该符号的类型. 仅供增量编译在重新分析声明了该符号的语句之前使用, 之后可以再次 {@link #setType(SourceCodeType)}.
+     */
+    public void clearType() {
+        this.type = null;
+    }
+
+    private final int id;
     private final String text;
     private SourceCodeType type;
 }
@@ -0,0 +1,36 @@
+package cn.edu.hitsz.compiler.utils;
+
+/**
+ * 协作式取消: 编译的各阶段在耗时的循环中每隔若干步检查所在线程是否被中断, 被中断时抛出异常结束编译
+ * <br>
+ * 取消一个编译 (见 {@link cn.edu.hitsz.compiler.CompileServer}) 即中断其所在的线程,
+ * 编译在下一个检查点结束, 而不必等到整个阶段完成.
+ */
+public final class Cancellation {
+    // 两次检查之间的步数, 为 2 的幂
+    private static final int INTERVAL = 1024;
+
+    private Cancellation() {
+    }
+
+    /**
+     * @throws RuntimeException 所在线程已被中断
+     */
+    public static void checkpoint() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Compilation cancelled");
+        }
+    }
+
+    /**
+     * 每 {@value #INTERVAL} 步才真正检查一次, 供逐步执行的循环调用
+     *
+     * @param step 循环已执行的步数
+     * @throws RuntimeException 所在线程已被中断
+     */
+    public static void checkpoint(int step) {
+        if ((step & (INTERVAL - 1)) == 0) {
+            checkpoint();
+        }
+    }
+}
@@ -25,6 +25,18 @@ public final class FilePathConfig {
      */
     public final static String LR1_TABLE_PATH = "data/in/LR1_table.csv";
 
+    /**
+     * 由 LR 分析表转换出的二进制格式, 见 {@link cn.edu.hitsz.compiler.parser.table.TableConverter}
+     */
+    public final static String LR1_TABLE_BIN_PATH = "data/in/LR1_table.bin";
+
+
+    //==================================== 缓存 ========================================//
+    /**
+     * LR 分析表缓存目录, 见 {@link cn.edu.hitsz.compiler.parser.table.TableCache}
+     */
+    public static final String TABLE_CACHE_DIR = "data/cache";
+
 
     //==================================== 输出文件 ========================================//
     /**
@@ -1,10 +1,14 @@
 package cn.edu.hitsz.compiler.utils;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.List;
 
@@ -36,6 +40,36 @@ public final class FileUtils {
         }
     }
 
+    /**
+     * 读取文件的全部字节
+     *
+     * @param path 文件路径
+     * @return 文件内容
+     */
+    public static byte[] readBytes(String path) {
+        try {
+            return Files.readAllBytes(Paths.get(path));
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on " + path, e);
+        }
+    }
+
+    /**
+     * 以只读方式将整个文件映射到内存
+     * <br>
+     * 文件内容不会被复制到堆上, 映射在返回的缓冲区被回收后自动解除. 单个映射不能超过 2GB.
+     *
+     * @param path 文件路径
+     * @return 映射出的缓冲区
+     */
+    public static MappedByteBuffer mapFile(String path) {
+        try (final var channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception on " + path, e);
+        }
+    }
+
     /**
      * 将内容写入指定文件
      *
@@ -54,6 +88,47 @@ public final class FileUtils {
         }
     }
 
+    /**
+     * 打开 (创建或清空) 文本文件用于逐行写入, 换行符与 {@link #writeLines(String, List)} 相同
+     *
+     * @param path 文件路径
+     * @return 带缓冲的 UTF-8 writer, 由调用者关闭
+     */
+    public static BufferedWriter openWriter(String path) {
+        try {
+            return Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception for " + path, e);
+        }
+    }
+
+    /**
+     * 将二进制内容写入指定文件
+     *
+     * @param path  要写入的文件路径
+     * @param bytes 要写入的内容
+     */
+    public static void writeBytes(String path, byte[] bytes) {
+        try {
+            Files.write(Paths.get(path), bytes);
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception for " + path, e);
+        }
+    }
+
+    /**
+     * 创建目录及其不存在的各级父目录
+     *
+     * @param path 目录路径
+     */
+    public static void createDirectories(String path) {
+        try {
+            Files.createDirectories(Paths.get(path));
+        } catch (IOException e) {
+            throw new RuntimeException("IO Exception for " + path, e);
+        }
+    }
+
     /**
      * 创建空文件
      *
@@ -19,7 +19,9 @@ public class IREmulator {
     }
 
     public Optional<Integer> execute() {
+        var steps = 0;
         for (final var instruction : instructions) {
+            Cancellation.checkpoint(++steps);
             switch (instruction.getKind()) {
                 case MOV -> {
                     final var from = eval(instruction.getFrom());